@@ -24,8 +24,12 @@ package com.cerberustek;
 
 import com.cerberustek.addon.Addon;
 import com.cerberustek.addon.AddonInfo;
+import com.cerberustek.addon.AddonLifecycleExecutor;
 import com.cerberustek.addon.AddonManager;
+import com.cerberustek.addon.AddonSettings;
+import com.cerberustek.addon.AddonThreadRegistry;
 import com.cerberustek.commands.AddonCommand;
+import com.cerberustek.events.AddonEvents;
 import com.cerberustek.events.ExceptionEvent;
 import com.cerberustek.exception.AddonLoadException;
 import com.cerberustek.service.CerberusService;
@@ -38,6 +42,9 @@ import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class CerberusAddon implements CerberusService {
 
@@ -52,9 +59,23 @@ public class CerberusAddon implements CerberusService {
 
     public static final String SETTINGS_PATH = "config/addon.properties";
 
+    private static final long REPORT_GRACE = TimeUnit.SECONDS.toNanos(1);
+
     private final Settings settings;
-    private final HashMap<Class<? extends AddonManager>, AddonManager> managers = new HashMap<>();
+    private final ConcurrentHashMap<Class<? extends AddonManager>, ManagerHolder> managers = new ConcurrentHashMap<>();
+    private final Object snapshotLock = new Object();
+    private volatile List<Class<? extends AddonManager>> managerSnapshot = Collections.emptyList();
+    private volatile Map<Class<? extends AddonManager>, Long> managerInitTimes = Collections.emptyMap();
     private final AddonCommand addonCommand;
+    private final AddonThreadRegistry threadRegistry = new AddonThreadRegistry();
+    private final AddonEvents events = new AddonEvents();
+    private final AtomicInteger abandonedHandlers = new AtomicInteger();
+
+    private ThreadPoolExecutor executor;
+    private ScheduledThreadPoolExecutor scheduler;
+    private ThreadPoolExecutor lifecyclePool;
+    private ThreadPoolExecutor handlerPool;
+    private AddonLifecycleExecutor lifecycleExecutor;
 
     public CerberusAddon() {
         settings = new SettingsImpl(new File(SETTINGS_PATH), false);
@@ -65,30 +86,140 @@ public class CerberusAddon implements CerberusService {
     public void start() {
         // load settings
         settings.init();
+        events.mute(settings.getString("muted_events", ""));
+
+        // create shared addon pools
+        int executorThreads = Math.max(1, AddonSettings.getInt(settings, "executor_threads",
+                Runtime.getRuntime().availableProcessors()));
+        executor = new ThreadPoolExecutor(executorThreads, executorThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory("addon-executor-"));
+        executor.allowCoreThreadTimeOut(true);
+
+        scheduler = new ScheduledThreadPoolExecutor(Math.max(1, AddonSettings.getInt(settings,
+                "scheduler_threads", 1)), threadFactory("addon-scheduler-"));
+        scheduler.setRemoveOnCancelPolicy(true);
+
+        int lifecycleThreads = Math.max(1, AddonSettings.getInt(settings, "lifecycle_threads",
+                Runtime.getRuntime().availableProcessors()));
+        lifecyclePool = new ThreadPoolExecutor(lifecycleThreads, lifecycleThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory("addon-lifecycle-"));
+        lifecyclePool.allowCoreThreadTimeOut(true);
+        lifecycleExecutor = new AddonLifecycleExecutor(lifecyclePool);
+
+        // handlers may hang, so they do not share a pool with other tasks;
+        // the pool is capped, so that hanging handlers can not pile up threads
+        int handlerThreads = Math.max(1, AddonSettings.getInt(settings, "handler_threads", 16));
+        handlerPool = new ThreadPoolExecutor(handlerThreads, handlerThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory("addon-handler-"));
+        handlerPool.allowCoreThreadTimeOut(true);
 
         List<Object> defClasses = new ArrayList<>();
         defClasses.add("de.cerberus.addon.java.JavaAddonManager");
 
+        List<Class<? extends AddonManager>> classes = new ArrayList<>();
         Object obj = settings.getObject("managers", defClasses);
         if (obj instanceof List) {
             for (Object o : (List<?>) obj) {
                 if (o instanceof String) {
                     Class<? extends AddonManager> clazz = loadClass((String) o);
                     if (clazz != null)
-                        getManager(clazz);
+                        classes.add(clazz);
                 }
             }
         } else if (obj instanceof String) {
             Class<? extends AddonManager> clazz = loadClass((String) obj);
             if (clazz != null)
-                getManager(clazz);
+                classes.add(clazz);
         } else
             CerberusRegistry.getInstance().warning("Failed to load default addon managers");
 
+        initManagers(classes);
+
         // register comments
         CerberusRegistry.getInstance().registerTerminalCommand(addonCommand);
     }
 
+    /**
+     * Will initialize the specified addon managers concurrently and wait
+     * for them, until the configured deadline has passed.
+     *
+     * Managers that fail to initialize do not hold up the others and
+     * managers that miss the deadline keep initializing in the
+     * background. Managers may request each other during init, since
+     * they are registered before they are initialized.
+     *
+     * @param classes manager classes to initialize
+     */
+    private void initManagers(List<Class<? extends AddonManager>> classes) {
+        if (classes.isEmpty())
+            return;
+
+        int threads = Math.max(1, Math.min(classes.size(), AddonSettings.getInt(settings,
+                "manager_init_threads", Runtime.getRuntime().availableProcessors())));
+        long timeout = AddonSettings.getLong(settings, "manager_init_timeout", 60000);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, threadFactory("addon-manager-init-"));
+        LinkedHashMap<Class<? extends AddonManager>, Future<Long>> futures = new LinkedHashMap<>();
+        try {
+            for (Class<? extends AddonManager> clazz : classes) {
+                futures.put(clazz, pool.submit(() -> {
+                    long start = System.nanoTime();
+                    getManager(clazz);
+                    return System.nanoTime() - start;
+                }));
+            }
+        } finally {
+            // let managers that miss the deadline finish in the background
+            pool.shutdown();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        LinkedHashMap<Class<? extends AddonManager>, Long> times = new LinkedHashMap<>();
+        for (Map.Entry<Class<? extends AddonManager>, Future<Long>> entry : futures.entrySet()) {
+            String name = entry.getKey().getSimpleName();
+            try {
+                long nanos = entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                times.put(entry.getKey(), nanos);
+                CerberusRegistry.getInstance().info("Initialized addon manager " + name + " in "
+                        + (nanos / 1_000_000) + "ms");
+            } catch (TimeoutException e) {
+                CerberusRegistry.getInstance().warning("Addon manager " + name + " did not finish initializing within "
+                        + timeout + "ms");
+            } catch (ExecutionException e) {
+                CerberusRegistry.getInstance().warning("Failed to initialize addon manager " + name);
+                CerberusRegistry.getInstance().getService(CerberusEvent.class)
+                        .executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+            } catch (InterruptedException e) {
+                CerberusRegistry.getInstance().warning("Interrupted while waiting for addon manager " + name);
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        managerInitTimes = Collections.unmodifiableMap(times);
+    }
+
+    /**
+     * Returns the time in nanoseconds it took to initialize each addon
+     * manager during the last start of the service.
+     *
+     * Managers that failed or missed the startup deadline are not
+     * included.
+     *
+     * @return init time by manager class
+     */
+    public @NotNull Map<Class<? extends AddonManager>, Long> getManagerInitTimes() {
+        return managerInitTimes;
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
     private Class<? extends AddonManager> loadClass(String loadClass) {
         try {
             ClassLoader classLoader = getClass().getClassLoader();
@@ -110,11 +241,77 @@ public class CerberusAddon implements CerberusService {
         // unload comments
         CerberusRegistry.getInstance().unregisterTerminalCommand(addonCommand);
 
-        // unload addon managers
-        managers.values().forEach(AddonManager::destroy);
+        try {
+            // unload addon managers
+            stopManagers();
+        } finally {
+            // stop shared addon pools
+            executor.shutdownNow();
+            scheduler.shutdownNow();
+            lifecyclePool.shutdownNow();
+            // operations dropped by the pool would never complete otherwise
+            lifecycleExecutor.shutdown();
+            handlerPool.shutdownNow();
 
-        // save settings
-        settings.destroy();
+            // save settings
+            settings.destroy();
+        }
+    }
+
+    /**
+     * Will shut down all addon managers concurrently and wait for them,
+     * until the configured deadline has passed. Addons and managers that
+     * miss the deadline are reported.
+     */
+    private void stopManagers() {
+        long timeout = AddonSettings.getLong(settings, "shutdown_timeout", 25000);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        ArrayList<AddonManager> active = new ArrayList<>();
+        for (ManagerHolder holder : managers.values()) {
+            AddonManager manager = holder.stop();
+            if (manager != null)
+                active.add(manager);
+            else if (holder.manager != null)
+                CerberusRegistry.getInstance().warning("Addon manager " + holder.clazz.getSimpleName()
+                        + " is still initializing and will be destroyed once it has finished");
+        }
+        if (active.isEmpty())
+            return;
+
+        ExecutorService pool = Executors.newFixedThreadPool(active.size(), threadFactory("addon-manager-stop-"));
+        LinkedHashMap<AddonManager, Future<Collection<AddonInfo>>> futures = new LinkedHashMap<>();
+        try {
+            for (AddonManager manager : active)
+                futures.put(manager, pool.submit(() -> manager.shutdown(deadline)));
+        } finally {
+            // let managers that miss the deadline finish in the background
+            pool.shutdown();
+        }
+
+        for (Map.Entry<AddonManager, Future<Collection<AddonInfo>>> entry : futures.entrySet()) {
+            String name = entry.getKey().getClass().getSimpleName();
+            try {
+                // give the managers a moment past the deadline to report
+                // the addons they gave up on
+                Collection<AddonInfo> missed = entry.getValue().get(Math.max(0, deadline + REPORT_GRACE
+                        - System.nanoTime()), TimeUnit.NANOSECONDS);
+                for (AddonInfo info : missed)
+                    CerberusRegistry.getInstance().warning("Addon " + info.getSimpleName()
+                            + " did not shut down within " + timeout + "ms");
+            } catch (TimeoutException e) {
+                CerberusRegistry.getInstance().warning("Addon manager " + name + " did not shut down within "
+                        + timeout + "ms");
+            } catch (ExecutionException e) {
+                CerberusRegistry.getInstance().warning("Failed to shut down addon manager " + name);
+                CerberusRegistry.getInstance().getService(CerberusEvent.class)
+                        .executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+            } catch (InterruptedException e) {
+                CerberusRegistry.getInstance().warning("Interrupted while waiting for addon manager " + name);
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
     }
 
     @Override
@@ -124,15 +321,23 @@ public class CerberusAddon implements CerberusService {
 
     @Override
     public Collection<Thread> getThreads() {
-        HashSet<Thread> threads = new HashSet<>();
-        for (AddonManager manager : managers.values()) {
-            for (AddonInfo info : manager.getAddonInfo()) {
-                Addon addon = manager.getAddon(info);
-                if (addon != null && addon.isActive())
-                    threads.addAll(addon.getThreadList());
-            }
-        }
-        return threads;
+        return threadRegistry.getThreads();
+    }
+
+    /**
+     * Returns the dispatcher of the addon lifecycle events.
+     * @return addon events
+     */
+    public @NotNull AddonEvents getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the registry of all threads owned by addons.
+     * @return thread registry
+     */
+    public @NotNull AddonThreadRegistry getThreadRegistry() {
+        return threadRegistry;
     }
 
     /**
@@ -145,27 +350,80 @@ public class CerberusAddon implements CerberusService {
     }
 
     /**
-     * Returns the addon manager based on the manager class
+     * Returns the shared executor, on which the tasks of all addon
+     * executors are run.
+     * @return shared addon executor
+     */
+    public @NotNull ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns the shared scheduler, on which the tasks of all addon
+     * schedulers are run.
+     * @return shared addon scheduler
+     */
+    public @NotNull ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Returns the executor, on which asynchronous addon lifecycle
+     * operations are run.
+     * @return lifecycle executor
+     */
+    public @NotNull AddonLifecycleExecutor getLifecycleExecutor() {
+        return lifecycleExecutor;
+    }
+
+    /**
+     * Returns the executor, on which the enable and disable handlers of
+     * addons are run, while they are watched for timeouts.
+     * @return handler executor
+     */
+    public @NotNull ExecutorService getHandlerExecutor() {
+        return handlerPool;
+    }
+
+    /**
+     * Returns the amount of handler threads, that are still running a
+     * handler after its timeout has expired and it has been interrupted.
+     * @return abandoned handler threads
+     */
+    public int getAbandonedHandlerCount() {
+        return abandonedHandlers.get();
+    }
+
+    /**
+     * Will count a handler, that is still running after it has been
+     * interrupted, until it returns.
+     * @param abandoned true, if the handler has been abandoned, false if
+     *                  it has returned after it has been abandoned
+     * @return amount of abandoned handler threads
+     */
+    public int trackAbandonedHandler(boolean abandoned) {
+        return abandoned ? abandonedHandlers.incrementAndGet() : abandonedHandlers.decrementAndGet();
+    }
+
+    /**
+     * Returns the addon manager based on the manager class.
+     *
+     * If the manager is not loaded yet, it is created and initialized
+     * exactly once. The manager is registered as soon as it has been
+     * constructed and before it is initialized, so it is returned to
+     * anyone requesting it during its initialization, including other
+     * managers. Concurrent callers only wait for the constructor, at most
+     * for the <code>manager_init_timeout</code>.
+     *
      * @param clazz manager class
      * @param <T> addon type
      * @return addon manager
      */
     public <T extends AddonManager> @NotNull T getManager(@NotNull Class<T> clazz) {
-        AddonManager manager = managers.get(clazz);
-        if (manager == null) {
-            try {
-                Constructor<T> constructor = clazz.getConstructor();
-                manager = constructor.newInstance();
-                managers.put(clazz, manager);
-                manager.init();
-            } catch (NoSuchMethodException | IllegalAccessException
-                    | InstantiationException | InvocationTargetException e) {
-                CerberusRegistry.getInstance().warning("Failed to create addon manager");
-                CerberusRegistry.getInstance().getService(CerberusEvent.class)
-                        .executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
-                throw new IllegalArgumentException("Addon manager class " + clazz.getName() + " can not be initiated");
-            }
-        }
+        AddonManager manager = lookup(clazz);
+        if (manager == null)
+            manager = managers.computeIfAbsent(clazz, ManagerHolder::new).get(this,
+                    AddonSettings.getLong(settings, "manager_init_timeout", 60000));
 
         try {
             return clazz.cast(manager);
@@ -174,6 +432,28 @@ public class CerberusAddon implements CerberusService {
         }
     }
 
+    /**
+     * Returns the manager registered for the manager class, if it has
+     * been initialized.
+     * @param clazz manager class
+     * @return addon manager
+     */
+    private @Nullable AddonManager lookup(@NotNull Class<? extends AddonManager> clazz) {
+        ManagerHolder holder = managers.get(clazz);
+        return holder == null ? null : holder.manager;
+    }
+
+    private void publishManagers() {
+        synchronized (snapshotLock) {
+            ArrayList<Class<? extends AddonManager>> snapshot = new ArrayList<>();
+            for (Map.Entry<Class<? extends AddonManager>, ManagerHolder> entry : managers.entrySet()) {
+                if (entry.getValue().manager != null)
+                    snapshot.add(entry.getKey());
+            }
+            managerSnapshot = Collections.unmodifiableList(snapshot);
+        }
+    }
+
     /**
      * Will remove and destroy the addon manager associated with the manager
      * class.
@@ -181,7 +461,12 @@ public class CerberusAddon implements CerberusService {
      * @param <T> manager type
      */
     public <T extends AddonManager> void removeManager(@NotNull Class<T> clazz) {
-        AddonManager manager = managers.remove(clazz);
+        ManagerHolder holder = managers.remove(clazz);
+        if (holder == null)
+            return;
+
+        publishManagers();
+        AddonManager manager = holder.manager;
         if (manager != null)
             manager.destroy();
     }
@@ -192,16 +477,16 @@ public class CerberusAddon implements CerberusService {
      * @return is loaded
      */
     public boolean hasManager(@NotNull Class<? extends AddonManager> addonManager) {
-        return managers.containsKey(addonManager);
+        return lookup(addonManager) != null;
     }
 
     /**
-     * Returns a collection of the addon manager classes of the managers that
+     * Returns a snapshot of the addon manager classes of the managers that
      * are currently loaded.
      * @return currently loaded addon managers
      */
     public @NotNull Collection<Class<? extends AddonManager>> getManagers() {
-        return managers.keySet();
+        return managerSnapshot;
     }
 
     /**
@@ -214,7 +499,7 @@ public class CerberusAddon implements CerberusService {
      * @return addon
      */
     public @Nullable Addon getAddon(@NotNull AddonInfo info) {
-        AddonManager manager = managers.get(info.managerClass());
+        AddonManager manager = lookup(info.managerClass());
         if (manager == null)
             return null;
 
@@ -238,15 +523,215 @@ public class CerberusAddon implements CerberusService {
         }
     }
 
+    /**
+     * Will load the addon for the addon info object asynchronously.
+     *
+     * If loading the addon fails, the future completes exceptionally
+     * with an {@link AddonLoadException}.
+     *
+     * @param info addon info to load
+     * @return future of the addon
+     */
+    public @NotNull CompletableFuture<Addon> loadAddonAsync(@NotNull AddonInfo info) {
+        AddonManager manager;
+        try {
+            manager = getManager(info.managerClass());
+        } catch (RuntimeException e) {
+            CompletableFuture<Addon> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return manager.loadAddonAsync(info);
+    }
+
     /**
      * Will unload an addon.
      * @param info addon info
      */
     public void unloadAddon(@NotNull AddonInfo info) {
-        AddonManager manager = managers.get(info.managerClass());
+        AddonManager manager = lookup(info.managerClass());
+        if (manager != null)
+            manager.unload(info);
+    }
+
+    /**
+     * Will unload an addon asynchronously.
+     * @param info addon info
+     * @return future completed, once the addon has been unloaded
+     */
+    public @NotNull CompletableFuture<Void> unloadAddonAsync(@NotNull AddonInfo info) {
+        AddonManager manager = lookup(info.managerClass());
         if (manager == null)
-            return;
+            return CompletableFuture.completedFuture(null);
+
+        return manager.unloadAsync(info);
+    }
+
+    /**
+     * Will reload an addon asynchronously.
+     * @param info addon info
+     * @return future completed, once the addon has been reloaded
+     */
+    public @NotNull CompletableFuture<Void> reloadAddonAsync(@NotNull AddonInfo info) {
+        AddonManager manager = lookup(info.managerClass());
+        if (manager == null)
+            return CompletableFuture.completedFuture(null);
+
+        return manager.reloadAsync(info);
+    }
+
+    /**
+     * Will enable a loaded addon asynchronously.
+     * @param info addon info
+     * @return future of the enable result
+     */
+    public @NotNull CompletableFuture<Boolean> enableAddonAsync(@NotNull AddonInfo info) {
+        AddonManager manager = lookup(info.managerClass());
+        if (manager == null)
+            return CompletableFuture.completedFuture(false);
+
+        return manager.enableAsync(info);
+    }
+
+    /**
+     * Will disable a loaded addon asynchronously.
+     * @param info addon info
+     * @return future of the disable result
+     */
+    public @NotNull CompletableFuture<Boolean> disableAddonAsync(@NotNull AddonInfo info) {
+        AddonManager manager = lookup(info.managerClass());
+        if (manager == null)
+            return CompletableFuture.completedFuture(false);
+
+        return manager.disableAsync(info);
+    }
+
+    /**
+     * Registry slot of an addon manager, which makes sure that the manager
+     * is only created and initialized once.
+     */
+    private static final class ManagerHolder {
+
+        private final Class<? extends AddonManager> clazz;
+        private final AtomicReference<Thread> initializer = new AtomicReference<>();
+        private final CountDownLatch constructed = new CountDownLatch(1);
+
+        /** Constructed manager; published before it is initialized */
+        private volatile AddonManager manager;
+        private volatile RuntimeException failure;
+        private boolean initialized;
+        private boolean stopped;
+
+        private ManagerHolder(Class<? extends AddonManager> clazz) {
+            this.clazz = clazz;
+        }
+
+        private AddonManager get(CerberusAddon service, long timeout) {
+            AddonManager result = manager;
+            if (result != null)
+                return result;
+
+            Thread current = Thread.currentThread();
+            if (initializer.compareAndSet(null, current)) {
+                create(service);
+            } else if (initializer.get() == current) {
+                throw new IllegalStateException("Addon manager " + clazz.getName() + " is requested from its constructor");
+            } else {
+                try {
+                    if (!constructed.await(timeout, TimeUnit.MILLISECONDS))
+                        throw new IllegalStateException("Addon manager " + clazz.getName()
+                                + " has not been constructed within " + timeout + "ms");
+                } catch (InterruptedException e) {
+                    current.interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for addon manager "
+                            + clazz.getName());
+                }
+            }
+
+            if (failure != null)
+                throw failure;
+            return manager;
+        }
+
+        private void create(CerberusAddon service) {
+            AddonManager instance;
+            try {
+                Constructor<? extends AddonManager> constructor = clazz.getConstructor();
+                instance = constructor.newInstance();
+            } catch (NoSuchMethodException | IllegalAccessException
+                    | InstantiationException | InvocationTargetException e) {
+                CerberusRegistry.getInstance().warning("Failed to create addon manager");
+                CerberusRegistry.getInstance().getService(CerberusEvent.class)
+                        .executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+                fail(service, new IllegalArgumentException("Addon manager class " + clazz.getName()
+                        + " can not be initiated"));
+                return;
+            } catch (RuntimeException e) {
+                fail(service, e);
+                return;
+            }
 
-        manager.unload(info);
+            // register the manager before init, so that addons and other
+            // managers may request it while it is initializing
+            manager = instance;
+            service.publishManagers();
+            constructed.countDown();
+
+            try {
+                instance.init();
+            } catch (RuntimeException e) {
+                service.managers.remove(clazz, this);
+                service.publishManagers();
+                throw e;
+            } finally {
+                finish(instance);
+            }
+        }
+
+        /**
+         * Will mark the manager as initialized and destroy it right away,
+         * if the service has been stopped while it was initializing.
+         * @param instance initialized manager
+         */
+        private void finish(AddonManager instance) {
+            boolean late;
+            synchronized (this) {
+                initialized = true;
+                late = stopped;
+            }
+            if (!late)
+                return;
+
+            CerberusRegistry.getInstance().warning("Destroying addon manager " + clazz.getSimpleName()
+                    + ", which finished initializing after the service has been stopped");
+            try {
+                instance.destroy();
+            } catch (RuntimeException e) {
+                CerberusRegistry.getInstance().getService(CerberusEvent.class)
+                        .executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+            }
+        }
+
+        /**
+         * Returns the manager to shut down with the service. If the manager
+         * is still initializing, it is destroyed by its initializing thread
+         * once it has finished instead, and null is returned.
+         * @return initialized manager, or null
+         */
+        private synchronized AddonManager stop() {
+            if (!initialized) {
+                stopped = true;
+                return null;
+            }
+            return manager;
+        }
+
+        private void fail(CerberusAddon service, RuntimeException e) {
+            failure = e;
+            // drop the slot, so that the manager may be requested again later
+            service.managers.remove(clazz, this);
+            constructed.countDown();
+            throw e;
+        }
     }
 }
@@ -64,6 +64,14 @@ public interface Addon extends Destroyable {
      */
     boolean isActive();
 
+    /**
+     * Returns the current lifecycle state of the addon.
+     * @return lifecycle state
+     */
+    default @NotNull AddonState getState() {
+        return isActive() ? AddonState.ACTIVE : AddonState.LOADED;
+    }
+
     /**
      * Returns a list of all threads owned by the addon.
      * @return threads owned by the addon
@@ -0,0 +1,239 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Dependency graph of a set of addons.
+ *
+ * The graph sorts the addons into waves, such that every addon only
+ * depends on addons of earlier waves or on addons outside of the graph,
+ * that are already available. Addons within the same wave do not depend
+ * on each other and may be enabled concurrently.
+ *
+ * Addons with missing dependencies, addons that are part of a dependency
+ * cycle and addons that depend on either of them are not scheduled.
+ *
+ * @param <T> addon type
+ */
+public class AddonDependencyGraph<T> {
+
+    private final List<List<T>> waves = new ArrayList<>();
+    private final LinkedHashMap<T, List<String>> missing = new LinkedHashMap<>();
+    private final List<List<T>> cycles = new ArrayList<>();
+    private final LinkedHashSet<T> blocked = new LinkedHashSet<>();
+
+    /**
+     * Will build the dependency graph of the specified addons.
+     * @param nodes addons in the order in which they should be scheduled
+     *              within a wave
+     * @param name returns the name of an addon
+     * @param dependencies returns the names of the dependencies of an addon
+     * @param available returns true, if an addon with the specified name
+     *                  is available outside of the graph
+     */
+    public AddonDependencyGraph(@NotNull Collection<T> nodes, @NotNull Function<T, String> name,
+                                @NotNull Function<T, String[]> dependencies, @NotNull Predicate<String> available) {
+        HashMap<String, T> byName = new HashMap<>();
+        for (T node : nodes)
+            byName.putIfAbsent(name.apply(node), node);
+
+        // resolve the dependency edges and collect missing dependencies
+        LinkedHashMap<T, List<T>> edges = new LinkedHashMap<>();
+        HashMap<T, List<T>> dependents = new HashMap<>();
+        for (T node : nodes) {
+            ArrayList<T> resolved = new ArrayList<>();
+            for (String dependency : dependencies.apply(node)) {
+                T target = byName.get(dependency);
+                if (target != null) {
+                    resolved.add(target);
+                    dependents.computeIfAbsent(target, k -> new ArrayList<>()).add(node);
+                } else if (!available.test(dependency))
+                    missing.computeIfAbsent(node, k -> new ArrayList<>()).add(dependency);
+            }
+            edges.put(node, resolved);
+        }
+
+        // addons depending on missing addons can not be scheduled either
+        ArrayDeque<T> queue = new ArrayDeque<>(missing.keySet());
+        HashSet<T> excluded = new HashSet<>(missing.keySet());
+        while (!queue.isEmpty()) {
+            for (T dependent : dependents.getOrDefault(queue.poll(), Collections.emptyList())) {
+                if (excluded.add(dependent)) {
+                    blocked.add(dependent);
+                    queue.add(dependent);
+                }
+            }
+        }
+
+        // sort the remaining addons into waves
+        HashMap<T, Integer> order = new HashMap<>();
+        HashMap<T, Integer> pending = new HashMap<>();
+        List<T> wave = new ArrayList<>();
+        for (Map.Entry<T, List<T>> entry : edges.entrySet()) {
+            if (excluded.contains(entry.getKey()))
+                continue;
+            order.put(entry.getKey(), order.size());
+            pending.put(entry.getKey(), entry.getValue().size());
+            if (entry.getValue().isEmpty())
+                wave.add(entry.getKey());
+        }
+
+        while (!wave.isEmpty()) {
+            waves.add(Collections.unmodifiableList(wave));
+            for (T node : wave)
+                pending.remove(node);
+
+            List<T> next = new ArrayList<>();
+            for (T node : wave) {
+                for (T dependent : dependents.getOrDefault(node, Collections.emptyList())) {
+                    Integer count = pending.get(dependent);
+                    if (count != null) {
+                        pending.put(dependent, count - 1);
+                        if (count == 1)
+                            next.add(dependent);
+                    }
+                }
+            }
+            // keep the scheduling order of the addons within the wave
+            next.sort(Comparator.comparingInt(order::get));
+            wave = next;
+        }
+
+        if (!pending.isEmpty())
+            findCycles(edges, pending.keySet());
+    }
+
+    /**
+     * Will find the dependency cycles among the specified addons, which
+     * could not be sorted into waves. Addons that are not part of a cycle
+     * are marked as blocked.
+     */
+    private void findCycles(Map<T, List<T>> edges, Set<T> remaining) {
+        // Tarjan's algorithm for strongly connected components
+        HashMap<T, Integer> indices = new HashMap<>();
+        HashMap<T, Integer> lowLinks = new HashMap<>();
+        ArrayDeque<T> stack = new ArrayDeque<>();
+        HashSet<T> onStack = new HashSet<>();
+        HashSet<T> cyclic = new HashSet<>();
+
+        for (T node : edges.keySet()) {
+            if (remaining.contains(node) && !indices.containsKey(node))
+                connect(node, edges, remaining, indices, lowLinks, stack, onStack, cyclic);
+        }
+
+        for (T node : edges.keySet()) {
+            if (remaining.contains(node) && !cyclic.contains(node))
+                blocked.add(node);
+        }
+    }
+
+    private void connect(T node, Map<T, List<T>> edges, Set<T> remaining, Map<T, Integer> indices,
+                         Map<T, Integer> lowLinks, Deque<T> stack, Set<T> onStack, Set<T> cyclic) {
+        int index = indices.size();
+        indices.put(node, index);
+        lowLinks.put(node, index);
+        stack.push(node);
+        onStack.add(node);
+
+        for (T target : edges.get(node)) {
+            if (!remaining.contains(target))
+                continue;
+
+            if (!indices.containsKey(target)) {
+                connect(target, edges, remaining, indices, lowLinks, stack, onStack, cyclic);
+                lowLinks.put(node, Math.min(lowLinks.get(node), lowLinks.get(target)));
+            } else if (onStack.contains(target))
+                lowLinks.put(node, Math.min(lowLinks.get(node), indices.get(target)));
+        }
+
+        if (!lowLinks.get(node).equals(indices.get(node)))
+            return;
+
+        ArrayList<T> component = new ArrayList<>();
+        T member;
+        do {
+            member = stack.pop();
+            onStack.remove(member);
+            component.add(member);
+        } while (member != node);
+
+        if (component.size() > 1 || edges.get(node).contains(node)) {
+            Collections.reverse(component);
+            cycles.add(Collections.unmodifiableList(component));
+            cyclic.addAll(component);
+        }
+    }
+
+    /**
+     * Returns the addons in the order in which they should be enabled.
+     *
+     * Every wave only contains addons, whose dependencies are part of an
+     * earlier wave or available outside of the graph.
+     *
+     * @return enable waves
+     */
+    public @NotNull List<List<T>> getWaves() {
+        return Collections.unmodifiableList(waves);
+    }
+
+    /**
+     * Returns the addons that depend on addons, which are neither part of
+     * the graph nor available, along with the names of the missing addons.
+     * @return missing dependencies by addon
+     */
+    public @NotNull Map<T, List<String>> getMissing() {
+        return Collections.unmodifiableMap(missing);
+    }
+
+    /**
+     * Returns the dependency cycles in the graph.
+     * @return dependency cycles
+     */
+    public @NotNull List<List<T>> getCycles() {
+        return Collections.unmodifiableList(cycles);
+    }
+
+    /**
+     * Returns the addons that can not be scheduled, because they depend
+     * on an addon with missing dependencies or on a dependency cycle.
+     * @return blocked addons
+     */
+    public @NotNull Collection<T> getBlocked() {
+        return Collections.unmodifiableSet(blocked);
+    }
+
+    /**
+     * Returns true, if all addons of the graph could be scheduled.
+     * @return is complete
+     */
+    public boolean isComplete() {
+        return missing.isEmpty() && cycles.isEmpty() && blocked.isEmpty();
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon;
+
+import com.cerberustek.CerberusRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor service of a single addon.
+ *
+ * The executor does not own any threads. All tasks are run on a shared
+ * executor, while the addon executor keeps track of the tasks submitted
+ * through it. Shutting the addon executor down therefore only affects
+ * the tasks of its addon, never the shared executor or other addons.
+ *
+ * The executor may limit the amount of its tasks running on the shared
+ * executor at the same time. Additional tasks are queued by the addon
+ * executor, so that a single addon can not occupy the whole shared pool.
+ */
+public class AddonExecutor extends AbstractExecutorService {
+
+    private final Set<Task<?>> tasks = ConcurrentHashMap.newKeySet();
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Executor executor;
+    private final String name;
+    private final int concurrency;
+
+    private volatile boolean shutdown;
+
+    public AddonExecutor(@NotNull String name, @NotNull Executor executor) {
+        this(name, executor, 0);
+    }
+
+    /**
+     * Creates a new addon executor.
+     * @param name addon name
+     * @param executor shared executor
+     * @param concurrency maximum amount of tasks running at the same time,
+     *                    or zero for no limit
+     */
+    public AddonExecutor(@NotNull String name, @NotNull Executor executor, int concurrency) {
+        this.name = name;
+        this.executor = executor;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Returns the name of the addon this executor belongs to.
+     * @return addon name
+     */
+    public @NotNull String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the maximum amount of tasks of this executor, that may run
+     * at the same time.
+     * @return concurrency limit, or zero for no limit
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        Task<?> task = command instanceof Task ? (Task<?>) command : new Task<>(command, null, true);
+        // checked and added atomically, so that no task slips in after shutdown
+        synchronized (tasks) {
+            if (shutdown)
+                throw new RejectedExecutionException("Executor of addon " + name + " has been shut down");
+            tasks.add(task);
+        }
+
+        if (concurrency > 0) {
+            queue.add(task);
+            drain();
+            return;
+        }
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            tasks.remove(task);
+            throw e;
+        }
+    }
+
+    /**
+     * Will hand queued tasks over to the shared executor, as long as the
+     * concurrency limit permits.
+     */
+    private void drain() {
+        while (!queue.isEmpty()) {
+            int current = active.get();
+            if (current >= concurrency)
+                return;
+            if (!active.compareAndSet(current, current + 1))
+                continue;
+
+            Task<?> task = queue.poll();
+            if (task == null) {
+                active.decrementAndGet();
+                continue;
+            }
+
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                active.decrementAndGet();
+                task.cancel(false);
+                CerberusRegistry.getInstance().warning("Shared executor rejected a task of addon " + name);
+            }
+        }
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new Task<>(runnable, value, false);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new Task<>(callable);
+    }
+
+    /**
+     * Will run a task of this executor on the current thread, while
+     * tracking the current thread as running thread of the addon.
+     * @param runnable task
+     */
+    protected void runTracked(@NotNull Runnable runnable) {
+        Thread thread = Thread.currentThread();
+        running.add(thread);
+        try {
+            runnable.run();
+        } finally {
+            untrack(thread);
+        }
+    }
+
+    /**
+     * Will call a task of this executor on the current thread, while
+     * tracking the current thread as running thread of the addon.
+     * @param callable task
+     * @param <V> result type
+     * @return task result
+     * @throws Exception exception thrown by the task
+     */
+    protected <V> V callTracked(@NotNull Callable<V> callable) throws Exception {
+        Thread thread = Thread.currentThread();
+        running.add(thread);
+        try {
+            return callable.call();
+        } finally {
+            untrack(thread);
+        }
+    }
+
+    private void untrack(Thread thread) {
+        synchronized (running) {
+            running.remove(thread);
+            // the thread belongs to the shared executor, so an interrupt by
+            // shutdownNow must not leak into the next task it runs
+            if (shutdown)
+                Thread.interrupted();
+        }
+        signal();
+    }
+
+    /**
+     * Will notify all threads waiting for the termination of this
+     * executor, if the executor has terminated.
+     */
+    protected void signal() {
+        if (isTerminated()) {
+            synchronized (tasks) {
+                tasks.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the threads currently running tasks of this
+     * executor.
+     * @return running threads
+     */
+    public @NotNull Set<Thread> getRunningThreads() {
+        synchronized (running) {
+            return new HashSet<>(running);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (tasks) {
+            shutdown = true;
+        }
+        signal();
+    }
+
+    @Override
+    public @NotNull List<Runnable> shutdownNow() {
+        synchronized (tasks) {
+            shutdown = true;
+        }
+
+        ArrayList<Runnable> pending = new ArrayList<>();
+        queue.clear();
+        for (Task<?> task : tasks) {
+            if (!task.started)
+                pending.add(task);
+            task.cancel(false);
+        }
+
+        // only threads that are still running a task of this executor are
+        // interrupted, never idle threads of the shared executor
+        synchronized (running) {
+            running.forEach(Thread::interrupt);
+        }
+        signal();
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && tasks.isEmpty() && running.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (tasks) {
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    return false;
+                TimeUnit.NANOSECONDS.timedWait(tasks, remaining);
+            }
+        }
+        return true;
+    }
+
+    private class Task<T> extends FutureTask<T> {
+
+        private final boolean report;
+        private volatile boolean started;
+
+        private Task(Runnable runnable, T value, boolean report) {
+            super(runnable, value);
+            this.report = report;
+        }
+
+        private Task(Callable<T> callable) {
+            super(callable);
+            this.report = false;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            try {
+                runTracked(super::run);
+            } finally {
+                tasks.remove(this);
+                if (concurrency > 0) {
+                    active.decrementAndGet();
+                    drain();
+                }
+                signal();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (!started) {
+                tasks.remove(this);
+                signal();
+            }
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            super.setException(t);
+            if (report)
+                CerberusRegistry.getInstance().warning("Uncaught exception in task of addon " + name + ": " + t);
+        }
+    }
+}
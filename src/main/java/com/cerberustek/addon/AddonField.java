@@ -26,12 +26,23 @@ import com.cerberustek.settings.Settings;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 public enum AddonField {
 
     INFO(AddonInfo.class),
     DIRECTORY(File.class),
-    SETTINGS(Settings.class);
+    SETTINGS(Settings.class),
+    /** Executor of the addon, backed by the shared addon executor */
+    EXECUTOR(ExecutorService.class),
+    /** Scheduler of the addon, backed by the shared addon scheduler */
+    SCHEDULER(ScheduledExecutorService.class),
+    /** Metrics registry of the addon */
+    METRICS(AddonMetrics.class),
+    /** Thread factory, whose threads are registered as threads of the addon */
+    THREAD_FACTORY(ThreadFactory.class);
 
     private final Class<?> returnType;
 
@@ -0,0 +1,58 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Location and format of the handler index files.
+ *
+ * The handler index of an addon class lists its handler methods and
+ * injectable fields. It is generated at compile time by the addon index
+ * processor and allows the addon managers to skip the reflective scan
+ * of the addon class.
+ *
+ * Each line of an index file either is a comment starting with "#", the
+ * format version ("version 1"), a handler method ("method ENABLE name")
+ * or an injectable field ("field INFO name").
+ */
+public final class AddonIndex {
+
+    /** Current version of the index format */
+    public static final int VERSION = 1;
+    /** Directory of the index files inside the addon jar */
+    public static final String DIRECTORY = "META-INF/cerberus-addon/";
+
+    private AddonIndex() {}
+
+    /**
+     * Returns the resource path of the index file for the specified
+     * class.
+     * @param binaryName binary name of the class
+     * @return index resource path
+     */
+    public static @NotNull String path(@NotNull String binaryName) {
+        return DIRECTORY + binaryName + ".index";
+    }
+}
@@ -60,6 +60,17 @@ public interface AddonInfo {
     @NotNull
     String getSimpleName();
 
+    /**
+     * Returns the names of the addons this addon depends on.
+     *
+     * Dependencies are enabled before the addon itself.
+     *
+     * @return dependency names
+     */
+    default @NotNull String[] getDependencies() {
+        return new String[0];
+    }
+
     /**
      * Returns the jar file of the addon.
      * @return jar file
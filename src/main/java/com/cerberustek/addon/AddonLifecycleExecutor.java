@@ -0,0 +1,369 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Runs addon lifecycle operations asynchronously.
+ *
+ * Operations submitted for the same key are run one after another in
+ * submission order, while operations for different keys may run
+ * concurrently on the backing executor. This also applies to operations
+ * submitted from within a running lifecycle operation.
+ *
+ * Synchronous lifecycle methods called from within a lifecycle operation
+ * are run right away through {@link #call(Object, Callable)}, so that
+ * lifecycle code does not wait on itself. Tasks that an operation hands
+ * over to other threads, like addon handlers, may be wrapped with
+ * {@link #inherit(Callable)}. They then run as a child operation, which
+ * may take the lifecycle locks of its parent while the parent waits for
+ * it between {@link #handOff()} and {@link #reclaim()}.
+ */
+public class AddonLifecycleExecutor {
+
+    /** Lifecycle operation running on the current thread */
+    private static final ThreadLocal<Operation> OPERATION = new ThreadLocal<>();
+    /** Owner of the lifecycle locks taken outside of lifecycle operations */
+    private static final ThreadLocal<Operation> ROOT = ThreadLocal.withInitial(() -> new Operation(null));
+
+    private final ConcurrentHashMap<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Set<Step<?>> pending = ConcurrentHashMap.newKeySet();
+    private final Executor executor;
+
+    private volatile boolean shutdown;
+
+    public AddonLifecycleExecutor(@NotNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Will run the task after all tasks previously submitted for the same
+     * key have completed.
+     * @param key ordering key, usually the addon info
+     * @param task task to run
+     * @param <T> result type
+     * @return future of the task result
+     */
+    public <T> @NotNull CompletableFuture<T> submit(@NotNull Object key, @NotNull Callable<T> task) {
+        return enqueue(key, task, executor);
+    }
+
+    /**
+     * Will run the task after all tasks previously submitted for the same
+     * key have completed.
+     * @param key ordering key, usually the addon info
+     * @param task task to run
+     * @return future completed after the task has run
+     */
+    public @NotNull CompletableFuture<Void> submit(@NotNull Object key, @NotNull Runnable task) {
+        return submit(key, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Will run the task on the specified executor after all tasks
+     * previously submitted for the same key have completed.
+     *
+     * The task runs as a child operation of the caller. If the caller
+     * waits for it, it should hand its locks off for that time.
+     *
+     * @param key ordering key
+     * @param task task to run
+     * @param executor executor to run the task on
+     * @param <T> result type
+     * @return future of the task result
+     */
+    public <T> @NotNull CompletableFuture<T> submit(@NotNull Object key, @NotNull Callable<T> task,
+                                                   @NotNull Executor executor) {
+        return enqueue(key, inherit(task), executor);
+    }
+
+    /**
+     * Will run the task as a synchronous lifecycle operation and return
+     * its result.
+     *
+     * If the calling thread is running a lifecycle operation already, the
+     * task is run right away as part of it. Otherwise it is submitted for
+     * the key and awaited.
+     *
+     * @param key ordering key
+     * @param task task to run
+     * @param <T> result type
+     * @return result
+     */
+    public <T> T call(@NotNull Object key, @NotNull Callable<T> task) {
+        if (!isLifecycleThread())
+            return join(submit(key, task));
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        run(task, future);
+        return join(future);
+    }
+
+    private <T> CompletableFuture<T> enqueue(Object key, Callable<T> task, Executor executor) {
+        Step<T> step = new Step<>(key, task);
+        if (shutdown) {
+            step.fail(new RejectedExecutionException("Addon lifecycle executor has been shut down"));
+            return step.future;
+        }
+
+        pending.add(step);
+        CompletableFuture<Void> previous = tails.put(key, step.done);
+        if (previous == null)
+            dispatch(step, executor);
+        else
+            previous.whenComplete((ignore, t) -> dispatch(step, executor));
+        return step.future;
+    }
+
+    private void dispatch(Step<?> step, Executor executor) {
+        try {
+            executor.execute(step);
+        } catch (RejectedExecutionException e) {
+            step.fail(e);
+        }
+    }
+
+    /**
+     * Will fail all operations that have not completed yet and reject
+     * operations submitted afterwards.
+     *
+     * This is meant to be called once the backing executor has been shut
+     * down, since operations it dropped would otherwise never complete.
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Step<?> step : pending)
+            step.fail(new CancellationException("Addon lifecycle executor has been shut down"));
+    }
+
+    private static <T> void run(Callable<T> task, CompletableFuture<T> future) {
+        boolean nested = OPERATION.get() != null;
+        if (!nested)
+            OPERATION.set(new Operation(null));
+        try {
+            future.complete(task.call());
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        } finally {
+            if (!nested)
+                OPERATION.remove();
+        }
+    }
+
+    /**
+     * Returns true, if the calling thread is currently running a lifecycle
+     * operation.
+     * @return is lifecycle thread
+     */
+    public static boolean isLifecycleThread() {
+        return OPERATION.get() != null;
+    }
+
+    /**
+     * Returns the operation owning the lifecycle locks taken by the
+     * calling thread. Outside of lifecycle operations, this is an
+     * operation bound to the thread.
+     * @return current operation
+     */
+    static @NotNull Operation currentOperation() {
+        Operation operation = OPERATION.get();
+        return operation != null ? operation : ROOT.get();
+    }
+
+    /**
+     * Returns a task, which runs the specified task as a child operation
+     * of the calling operation, on whatever thread it is run.
+     *
+     * Synchronous lifecycle methods called by the task run right away.
+     * The task may only take lifecycle locks held by its parent, while the
+     * parent has handed them off.
+     *
+     * @param task task to wrap
+     * @param <T> result type
+     * @return wrapped task
+     */
+    public static <T> @NotNull Callable<T> inherit(@NotNull Callable<T> task) {
+        Operation parent = currentOperation();
+        return () -> {
+            Operation previous = OPERATION.get();
+            OPERATION.set(new Operation(parent));
+            try {
+                return task.call();
+            } finally {
+                if (previous != null)
+                    OPERATION.set(previous);
+                else
+                    OPERATION.remove();
+            }
+        };
+    }
+
+    /**
+     * Will lend the lifecycle locks of the calling operation to its child
+     * operations, until {@link #reclaim()} is called.
+     *
+     * Call this before forking the children, that the operation waits
+     * for. The operation itself must not use the locks in the meantime.
+     */
+    public static void handOff() {
+        currentOperation().parked = true;
+    }
+
+    /**
+     * Will take the lifecycle locks lent by {@link #handOff()} back, once
+     * the child operations holding them have released them.
+     *
+     * Children that have not taken a lock yet, can no longer take it
+     * afterwards without waiting for it, like any other operation.
+     * Interrupts are deferred until the locks have been returned.
+     */
+    public static void reclaim() {
+        currentOperation().reclaim();
+    }
+
+    /**
+     * Will wait for the future to complete and return its result.
+     *
+     * Unchecked exceptions thrown by the task are rethrown as they are,
+     * checked exceptions are wrapped in a {@link CompletionException}.
+     *
+     * @param future future to wait for
+     * @param <T> result type
+     * @return result
+     */
+    public static <T> T join(@NotNull CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Queued lifecycle operation.
+     */
+    private class Step<T> implements Runnable {
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final Object key;
+        private final Callable<T> task;
+
+        private Step(Object key, Callable<T> task) {
+            this.key = key;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!future.isDone())
+                    AddonLifecycleExecutor.run(task, future);
+            } finally {
+                complete();
+            }
+        }
+
+        private void fail(Throwable t) {
+            future.completeExceptionally(t);
+            complete();
+        }
+
+        private void complete() {
+            pending.remove(this);
+            done.complete(null);
+            tails.remove(key, done);
+        }
+    }
+
+    /**
+     * Lifecycle operation owning lifecycle locks.
+     *
+     * An operation is only ever run by a single thread. Child operations
+     * keep a reference to their parent, so that locks can be lent to them.
+     */
+    static final class Operation {
+
+        private final Operation parent;
+        private volatile boolean parked;
+        private int borrowed;
+
+        private Operation(Operation parent) {
+            this.parent = parent;
+        }
+
+        /**
+         * Returns true, if this operation may borrow a lock held by the
+         * specified operation. This is the case, if the owner and all
+         * operations between it and this operation have handed off their
+         * locks.
+         * @param owner owner of the lock
+         * @return lock may be borrowed
+         */
+        boolean canBorrow(@NotNull Operation owner) {
+            for (Operation operation = parent; operation != null; operation = operation.parent) {
+                if (!operation.parked)
+                    return false;
+                if (operation == owner)
+                    return true;
+            }
+            return false;
+        }
+
+        synchronized void lend() {
+            borrowed++;
+        }
+
+        synchronized void giveBack() {
+            if (--borrowed == 0)
+                notifyAll();
+        }
+
+        private synchronized void reclaim() {
+            parked = false;
+            boolean interrupted = false;
+            while (borrowed > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.cerberustek.addon;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reentrant lock serializing the lifecycle of a single addon.
+ *
+ * The lock is owned by the lifecycle operation holding it, which is only
+ * ever run by a single thread. While an operation has handed its locks
+ * off with {@link AddonLifecycleExecutor#handOff()}, its child operations,
+ * like the enable and disable handlers of the addon, may borrow the lock.
+ * The lock is returned to the operation, once the child has released it.
+ * Only the operation currently holding the lock may proceed, so there is
+ * never more than one thread working under the lock.
+ */
+public class AddonLifecycleLock {
+
+    /** Owners the lock has been borrowed from, with their hold counts */
+    private final ArrayDeque<Hold> lenders = new ArrayDeque<>();
+    private AddonLifecycleExecutor.Operation owner;
+    private int holds;
+
+    /**
+     * Will wait until the lock is available and take it. Interrupts are
+     * deferred until the lock has been taken.
+     */
+    public synchronized void lock() {
+        AddonLifecycleExecutor.Operation current = AddonLifecycleExecutor.currentOperation();
+        boolean interrupted = false;
+        while (!acquire(current)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Will wait for the lock until the timeout expires.
+     * @param timeout timeout
+     * @param unit time unit of the timeout
+     * @return true, if the lock has been taken
+     * @throws InterruptedException thrown, if the thread has been
+     *          interrupted while waiting
+     */
+    public synchronized boolean tryLock(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        AddonLifecycleExecutor.Operation current = AddonLifecycleExecutor.currentOperation();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!acquire(current)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    private boolean acquire(AddonLifecycleExecutor.Operation current) {
+        if (owner == null) {
+            owner = current;
+            holds = 1;
+        } else if (owner == current) {
+            holds++;
+        } else if (current.canBorrow(owner)) {
+            owner.lend();
+            lenders.push(new Hold(owner, holds));
+            owner = current;
+            holds = 1;
+        } else
+            return false;
+        return true;
+    }
+
+    /**
+     * Will release the lock once.
+     *
+     * If the lock has been lent to a child operation of the caller, this
+     * waits until the child has given it back.
+     *
+     * @throws IllegalMonitorStateException thrown, if the lock is not
+     *          held by the current operation
+     */
+    public synchronized void unlock() {
+        AddonLifecycleExecutor.Operation current = AddonLifecycleExecutor.currentOperation();
+        boolean interrupted = false;
+        while (owner != current && isLender(current)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        if (owner != current)
+            throw new IllegalMonitorStateException("Addon lifecycle lock is not held by the current operation");
+
+        if (--holds == 0) {
+            Hold lender = lenders.poll();
+            if (lender != null) {
+                owner = lender.owner;
+                holds = lender.holds;
+                lender.owner.giveBack();
+            } else
+                owner = null;
+            notifyAll();
+        }
+    }
+
+    private boolean isLender(AddonLifecycleExecutor.Operation operation) {
+        for (Hold hold : lenders) {
+            if (hold.owner == operation)
+                return true;
+        }
+        return false;
+    }
+
+    private static class Hold {
+
+        private final AddonLifecycleExecutor.Operation owner;
+        private final int holds;
+
+        private Hold(AddonLifecycleExecutor.Operation owner, int holds) {
+            this.owner = owner;
+            this.holds = holds;
+        }
+    }
+}
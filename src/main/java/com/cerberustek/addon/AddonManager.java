@@ -22,6 +22,8 @@
 
 package com.cerberustek.addon;
 
+import com.cerberustek.CerberusAddon;
+import com.cerberustek.CerberusRegistry;
 import com.cerberustek.Destroyable;
 import com.cerberustek.Initable;
 import com.cerberustek.exception.AddonInfoLoadException;
@@ -31,6 +33,8 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
 public interface AddonManager extends Initable, Destroyable {
 
@@ -85,6 +89,21 @@ public interface AddonManager extends Initable, Destroyable {
      */
     void unloadAll();
 
+    /**
+     * Will unload all addons and destroy the manager, but give up waiting
+     * on addons that are not unloaded before the deadline.
+     *
+     * The settings of all addons are persisted, including the ones that
+     * missed the deadline.
+     *
+     * @param deadline deadline as a {@link System#nanoTime()} value
+     * @return addons that could not be unloaded before the deadline
+     */
+    default @NotNull Collection<AddonInfo> shutdown(long deadline) {
+        destroy();
+        return Collections.emptyList();
+    }
+
     /**
      * Will reload all addons from the main addon directory.
      */
@@ -101,4 +120,84 @@ public interface AddonManager extends Initable, Destroyable {
      * @return addon info
      */
     Collection<AddonInfo> getAddonInfo();
+
+    /**
+     * Will load an addon from an addon info object on the addon lifecycle
+     * executor.
+     *
+     * Lifecycle operations on the same addon are run in the order in
+     * which they were requested.
+     *
+     * @param info addon info
+     * @return future of the loaded addon
+     */
+    default @NotNull CompletableFuture<Addon> loadAddonAsync(@NotNull AddonInfo info) {
+        return lifecycleExecutor().submit(info, () -> loadAddon(info));
+    }
+
+    /**
+     * Will unload an addon on the addon lifecycle executor.
+     * @param info info to unload
+     * @return future completed, once the addon has been unloaded
+     */
+    default @NotNull CompletableFuture<Void> unloadAsync(@NotNull AddonInfo info) {
+        return lifecycleExecutor().submit(info, () -> unload(info));
+    }
+
+    /**
+     * Will reload all addons from the main addon directory on the addon
+     * lifecycle executor.
+     * @return future completed, once the addons have been reloaded
+     */
+    default @NotNull CompletableFuture<Void> reloadAsync() {
+        return lifecycleExecutor().submit(this, () -> reload());
+    }
+
+    /**
+     * Will reload the specified addon on the addon lifecycle executor.
+     * @param info addon
+     * @return future completed, once the addon has been reloaded
+     */
+    default @NotNull CompletableFuture<Void> reloadAsync(@NotNull AddonInfo info) {
+        return lifecycleExecutor().submit(info, () -> reload(info));
+    }
+
+    /**
+     * Will enable the specified addon on the addon lifecycle executor.
+     *
+     * If the addon is not loaded, the future completes with false.
+     *
+     * @param info addon
+     * @return future of the enable result
+     */
+    default @NotNull CompletableFuture<Boolean> enableAsync(@NotNull AddonInfo info) {
+        return lifecycleExecutor().submit(info, () -> {
+            Addon addon = getAddon(info);
+            return addon != null && addon.enable();
+        });
+    }
+
+    /**
+     * Will disable the specified addon on the addon lifecycle executor.
+     *
+     * If the addon is not loaded, the future completes with false.
+     *
+     * @param info addon
+     * @return future of the disable result
+     */
+    default @NotNull CompletableFuture<Boolean> disableAsync(@NotNull AddonInfo info) {
+        return lifecycleExecutor().submit(info, () -> {
+            Addon addon = getAddon(info);
+            return addon != null && addon.disable();
+        });
+    }
+
+    /**
+     * Returns the executor, on which the asynchronous lifecycle operations
+     * of this manager are run.
+     * @return lifecycle executor
+     */
+    default @NotNull AddonLifecycleExecutor lifecycleExecutor() {
+        return CerberusRegistry.getInstance().getService(CerberusAddon.class).getLifecycleExecutor();
+    }
 }
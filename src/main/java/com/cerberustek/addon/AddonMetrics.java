@@ -0,0 +1,152 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simple metrics registry of a single addon.
+ *
+ * Counters are identified by name and can be updated concurrently
+ * without locking. Timers keep the amount of recorded durations, their
+ * total and their maximum.
+ */
+public class AddonMetrics {
+
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the counter with the specified name.
+     * @param name counter name
+     * @return counter
+     */
+    public @NotNull LongAdder counter(@NotNull String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Will increment the counter with the specified name.
+     * @param name counter name
+     */
+    public void increment(@NotNull String name) {
+        counter(name).increment();
+    }
+
+    /**
+     * Returns the timer with the specified name.
+     * @param name timer name
+     * @return timer
+     */
+    public @NotNull Timer timer(@NotNull String name) {
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /**
+     * Will record a duration in the timer with the specified name.
+     * @param name timer name
+     * @param nanos duration in nanoseconds
+     */
+    public void record(@NotNull String name, long nanos) {
+        timer(name).record(nanos);
+    }
+
+    /**
+     * Returns a sorted snapshot of all counter values.
+     * @return counter values
+     */
+    public @NotNull Map<String, Long> getCounters() {
+        TreeMap<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        return snapshot;
+    }
+
+    /**
+     * Returns a sorted snapshot of all timers.
+     * @return timers
+     */
+    public @NotNull Map<String, Timer> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    /**
+     * Records durations in nanoseconds.
+     */
+    public static class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private volatile long last;
+
+        /**
+         * Will record a duration.
+         * @param nanos duration in nanoseconds
+         */
+        public void record(long nanos) {
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+            last = nanos;
+        }
+
+        /**
+         * Returns the amount of recorded durations.
+         * @return count
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the sum of all recorded durations.
+         * @return total in nanoseconds
+         */
+        public long getTotal() {
+            return total.sum();
+        }
+
+        /**
+         * Returns the longest recorded duration.
+         * @return maximum in nanoseconds
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Returns the most recently recorded duration.
+         * @return last duration in nanoseconds
+         */
+        public long getLast() {
+            return last;
+        }
+    }
+}
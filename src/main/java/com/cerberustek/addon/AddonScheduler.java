@@ -0,0 +1,109 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Scheduled executor service of a single addon.
+ *
+ * Like the addon executor, the addon scheduler does not own any
+ * threads, but schedules all tasks on a shared scheduler. Shutting the
+ * addon scheduler down cancels all tasks scheduled by its addon.
+ *
+ * Scheduled tasks are executed on the threads of the shared scheduler,
+ * so they should be kept short and hand longer work over to the addon
+ * executor.
+ */
+public class AddonScheduler extends AddonExecutor implements ScheduledExecutorService {
+
+    private final Set<ScheduledFuture<?>> scheduled = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+
+    public AddonScheduler(@NotNull String name, @NotNull ScheduledExecutorService scheduler) {
+        super(name, scheduler);
+        this.scheduler = scheduler;
+    }
+
+    private <V> ScheduledFuture<V> track(ScheduledFuture<V> future) {
+        scheduled.removeIf(Future::isDone);
+        scheduled.add(future);
+
+        if (isShutdown()) {
+            future.cancel(false);
+            throw new RejectedExecutionException("Scheduler of addon " + getName() + " has been shut down");
+        }
+        return future;
+    }
+
+    private void checkShutdown() {
+        if (isShutdown())
+            throw new RejectedExecutionException("Scheduler of addon " + getName() + " has been shut down");
+    }
+
+    @Override
+    public @NotNull ScheduledFuture<?> schedule(@NotNull Runnable command, long delay, @NotNull TimeUnit unit) {
+        checkShutdown();
+        return track(scheduler.schedule(() -> runTracked(command), delay, unit));
+    }
+
+    @Override
+    public @NotNull <V> ScheduledFuture<V> schedule(@NotNull Callable<V> callable, long delay,
+                                                    @NotNull TimeUnit unit) {
+        checkShutdown();
+        return track(scheduler.schedule(() -> callTracked(callable), delay, unit));
+    }
+
+    @Override
+    public @NotNull ScheduledFuture<?> scheduleAtFixedRate(@NotNull Runnable command, long initialDelay,
+                                                           long period, @NotNull TimeUnit unit) {
+        checkShutdown();
+        return track(scheduler.scheduleAtFixedRate(() -> runTracked(command), initialDelay, period, unit));
+    }
+
+    @Override
+    public @NotNull ScheduledFuture<?> scheduleWithFixedDelay(@NotNull Runnable command, long initialDelay,
+                                                              long delay, @NotNull TimeUnit unit) {
+        checkShutdown();
+        return track(scheduler.scheduleWithFixedDelay(() -> runTracked(command), initialDelay, delay, unit));
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        scheduled.forEach(future -> future.cancel(false));
+        scheduled.clear();
+    }
+
+    @Override
+    public @NotNull List<Runnable> shutdownNow() {
+        scheduled.forEach(future -> future.cancel(false));
+        scheduled.clear();
+        return super.shutdownNow();
+    }
+}
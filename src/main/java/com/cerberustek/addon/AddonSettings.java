@@ -0,0 +1,88 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon;
+
+import com.cerberustek.settings.Settings;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Small helper for reading typed values from the string based addon
+ * settings files.
+ */
+public final class AddonSettings {
+
+    private AddonSettings() {}
+
+    /**
+     * Returns the integer value stored with the specified key.
+     *
+     * If the key is not present or the value is malformed, the default
+     * value is returned.
+     *
+     * @param settings settings
+     * @param key key
+     * @param def default value
+     * @return integer value
+     */
+    public static int getInt(@NotNull Settings settings, @NotNull String key, int def) {
+        try {
+            return Integer.parseInt(settings.getString(key, Integer.toString(def)).trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    /**
+     * Returns the long value stored with the specified key.
+     *
+     * If the key is not present or the value is malformed, the default
+     * value is returned.
+     *
+     * @param settings settings
+     * @param key key
+     * @param def default value
+     * @return long value
+     */
+    public static long getLong(@NotNull Settings settings, @NotNull String key, long def) {
+        try {
+            return Long.parseLong(settings.getString(key, Long.toString(def)).trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    /**
+     * Returns the boolean value stored with the specified key.
+     *
+     * If the key is not present, the default value is returned.
+     *
+     * @param settings settings
+     * @param key key
+     * @param def default value
+     * @return boolean value
+     */
+    public static boolean getBoolean(@NotNull Settings settings, @NotNull String key, boolean def) {
+        return Boolean.parseBoolean(settings.getString(key, Boolean.toString(def)).trim());
+    }
+}
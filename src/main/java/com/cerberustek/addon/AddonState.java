@@ -0,0 +1,43 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon;
+
+/**
+ * Lifecycle states of an addon.
+ */
+public enum AddonState {
+
+    /** The addon is loaded and initialized, but not enabled */
+    LOADED,
+    /** The enable handler of the addon is currently running */
+    ENABLING,
+    /** The addon has been enabled successfully */
+    ACTIVE,
+    /** The disable handler of the addon is currently running */
+    DISABLING,
+    /** The enable or disable handler of the addon has failed */
+    FAILED,
+    /** The addon has been destroyed */
+    DESTROYED
+}
@@ -0,0 +1,136 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory of a single addon.
+ *
+ * Threads created by the factory belong to the thread group of the addon
+ * and are registered with the addon thread registry from the moment they
+ * are started until they terminate. Threads that are never started are
+ * never registered.
+ */
+public class AddonThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger counter = new AtomicInteger();
+    private final AddonInfo info;
+    private final AddonThreadRegistry registry;
+
+    private ThreadGroup group;
+
+    public AddonThreadFactory(@NotNull AddonInfo info, @NotNull AddonThreadRegistry registry) {
+        this.info = info;
+        this.registry = registry;
+    }
+
+    @Override
+    public @NotNull Thread newThread(@NotNull Runnable runnable) {
+        String name = info.getSimpleName() + "-" + counter.incrementAndGet();
+        try {
+            return new AddonThread(getThreadGroup(), runnable, name);
+        } catch (IllegalThreadStateException e) {
+            // the group has been destroyed since it has been looked up
+            synchronized (this) {
+                group = null;
+            }
+            return new AddonThread(getThreadGroup(), runnable, name);
+        }
+    }
+
+    /**
+     * Returns the thread group of the threads created by this factory.
+     *
+     * A new group is created, if the previous one has been destroyed.
+     *
+     * @return thread group
+     */
+    public synchronized @NotNull ThreadGroup getThreadGroup() {
+        if (group == null || group.isDestroyed())
+            group = new ThreadGroup("addon-" + info.getSimpleName());
+        return group;
+    }
+
+    /**
+     * Will destroy the thread group of this factory. If threads of the
+     * group are still alive, the group is destroyed once the last of them
+     * has terminated instead. Threads created afterwards belong to a new
+     * group.
+     */
+    @SuppressWarnings("deprecation")
+    public synchronized void destroyThreadGroup() {
+        if (group == null)
+            return;
+
+        try {
+            if (!group.isDestroyed()) {
+                if (group.activeCount() == 0 && group.activeGroupCount() == 0)
+                    group.destroy();
+                else
+                    group.setDaemon(true);
+            }
+        } catch (IllegalThreadStateException ignore) {
+            // a thread has been added or the group destroyed concurrently;
+            // a daemon group is destroyed along with its last thread
+            group.setDaemon(true);
+        }
+        group = null;
+    }
+
+    /**
+     * Thread registering itself with the registry, once it is started.
+     */
+    private class AddonThread extends Thread {
+
+        private AddonThread(ThreadGroup group, Runnable runnable, String name) {
+            super(group, () -> {
+                try {
+                    runnable.run();
+                } finally {
+                    registry.deregister(Thread.currentThread());
+                }
+            }, name);
+        }
+
+        @Override
+        public synchronized void start() {
+            // registered before it runs, so that threads which have been
+            // started but not scheduled yet are visible as well
+            boolean unstarted = getState() == State.NEW;
+            if (unstarted)
+                registry.register(this, info);
+            try {
+                super.start();
+            } catch (RuntimeException | Error e) {
+                if (unstarted)
+                    registry.deregister(this);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the threads owned by addons.
+ *
+ * Threads are registered once they are started and deregistered once
+ * they terminate, so the registry never has to ask the addons for their
+ * threads. All threads of an addon are dropped, once the addon is
+ * released. Snapshots of the registered threads are only rebuilt after
+ * the registry has changed, which makes polling them cheap.
+ */
+public class AddonThreadRegistry {
+
+    private final ConcurrentHashMap<Thread, AddonInfo> owners = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<AddonInfo, Threads> threads = new ConcurrentHashMap<>();
+    private final Threads all = new Threads();
+
+    /**
+     * Will register a thread as owned by the specified addon.
+     * @param thread thread
+     * @param info owning addon
+     */
+    public void register(@NotNull Thread thread, @NotNull AddonInfo info) {
+        AddonInfo previous = owners.put(thread, info);
+        if (previous != null && previous != info) {
+            Threads owned = threads.get(previous);
+            if (owned != null)
+                owned.remove(thread);
+        }
+        threads.computeIfAbsent(info, key -> new Threads()).add(thread);
+        all.add(thread);
+    }
+
+    /**
+     * Will remove a thread from the registry.
+     * @param thread thread
+     */
+    public void deregister(@NotNull Thread thread) {
+        AddonInfo info = owners.remove(thread);
+        if (info == null)
+            return;
+
+        Threads owned = threads.get(info);
+        if (owned != null)
+            owned.remove(thread);
+        all.remove(thread);
+    }
+
+    /**
+     * Will remove an addon together with all threads registered for it.
+     * @param info addon
+     */
+    public void remove(@NotNull AddonInfo info) {
+        Threads owned = threads.remove(info);
+        if (owned == null)
+            return;
+
+        for (Thread thread : owned.threads) {
+            if (owners.remove(thread, info))
+                all.remove(thread);
+        }
+    }
+
+    /**
+     * Returns the addon owning the specified thread.
+     * @param thread thread
+     * @return owning addon, or null if the thread is not owned by an addon
+     */
+    public @Nullable AddonInfo getOwner(@NotNull Thread thread) {
+        return owners.get(thread);
+    }
+
+    /**
+     * Returns an immutable snapshot of all registered threads.
+     * @return registered threads
+     */
+    public @NotNull Set<Thread> getThreads() {
+        return all.snapshot();
+    }
+
+    /**
+     * Returns an immutable snapshot of the threads owned by an addon.
+     * @param info addon
+     * @return threads owned by the addon
+     */
+    public @NotNull Set<Thread> getThreads(@NotNull AddonInfo info) {
+        Threads owned = threads.get(info);
+        return owned == null ? Collections.emptySet() : owned.snapshot();
+    }
+
+    /**
+     * Will deregister all threads that have terminated without being
+     * deregistered.
+     */
+    public void purge() {
+        for (Map.Entry<Thread, AddonInfo> entry : owners.entrySet()) {
+            if (entry.getKey().getState() == Thread.State.TERMINATED)
+                deregister(entry.getKey());
+        }
+    }
+
+    /**
+     * Set of threads with a lazily rebuilt snapshot.
+     */
+    private static class Threads {
+
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        private volatile Set<Thread> snapshot = Collections.emptySet();
+        private volatile boolean dirty;
+
+        private void add(Thread thread) {
+            threads.add(thread);
+            dirty = true;
+        }
+
+        private void remove(Thread thread) {
+            if (threads.remove(thread))
+                dirty = true;
+        }
+
+        private Set<Thread> snapshot() {
+            if (dirty) {
+                synchronized (this) {
+                    if (dirty) {
+                        // clear the flag first, so that concurrent changes
+                        // trigger another rebuild
+                        dirty = false;
+                        snapshot = Collections.unmodifiableSet(new HashSet<>(threads));
+                    }
+                }
+            }
+            return snapshot;
+        }
+    }
+}
@@ -22,12 +22,12 @@
 
 package com.cerberustek.addon.java;
 
-import com.cerberustek.CerberusEvent;
 import com.cerberustek.CerberusRegistry;
 import com.cerberustek.Initable;
 import com.cerberustek.addon.*;
 import com.cerberustek.events.AddonDisableEvent;
 import com.cerberustek.events.AddonEnableEvent;
+import com.cerberustek.events.AddonEvents;
 import com.cerberustek.events.ExceptionEvent;
 import com.cerberustek.settings.Settings;
 import com.cerberustek.settings.impl.SettingsImpl;
@@ -35,154 +35,472 @@ import com.cerberustek.CerberusAddon;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class JavaAddon implements Addon, Initable {
 
     private final Object instance;
+    private final JavaAddonHandle handle;
     private final JavaAddonInfo info;
+    private final JavaAddonHandlers handlers;
     private final File dir;
     private final Settings settings;
+    private final AddonMetrics metrics;
+    private final AddonEvents events;
+    private final AddonLifecycleLock lifecycleLock;
 
-    private long activationTime;
-    private boolean active;
+    private AddonExecutor executor;
+    private AddonScheduler scheduler;
+    private AddonThreadFactory threadFactory;
+    private final AtomicReference<AddonState> state = new AtomicReference<>(AddonState.LOADED);
+    private volatile long activationTime = -1;
+    private boolean settingsOpen;
+    private volatile boolean tornDown;
 
-    public JavaAddon(Object instance, JavaAddonInfo info, File dir) {
+    public JavaAddon(Object instance, JavaAddonHandle handle, File dir) {
+        this(instance, handle, dir, new AddonLifecycleLock());
+    }
+
+    /**
+     * Creates a new java addon.
+     * @param instance instance of the addon main class
+     * @param handle resolved addon handle
+     * @param dir run directory of the addon
+     * @param lifecycleLock lock serializing the lifecycle of the addon,
+     *                      shared with the addon manager
+     */
+    public JavaAddon(Object instance, JavaAddonHandle handle, File dir, AddonLifecycleLock lifecycleLock) {
         this.instance = instance;
-        this.info = info;
+        this.lifecycleLock = lifecycleLock;
+        this.handle = handle;
+        this.info = handle.getInfo();
+        this.handlers = JavaAddonHandlers.of(handle.getJavaClass());
         this.dir = dir;
 
-        active = false;
         settings = new SettingsImpl(dir.toPath().resolve("settings.properties").toFile(), false);
+        metrics = new AddonMetrics();
+        events = CerberusRegistry.getInstance().getService(CerberusAddon.class).getEvents();
     }
 
     @Override
     public void init() {
-        settings.init();
+        // a destroyed addon may be initialized again
+        state.compareAndSet(AddonState.DESTROYED, AddonState.LOADED);
+        synchronized (settings) {
+            settings.init();
+            settingsOpen = true;
+        }
 
-        Field infoField = findField(AddonField.INFO);
-        Field settingsField = findField(AddonField.SETTINGS);
-        Field dirField = findField(AddonField.DIRECTORY);
+        for (AddonField field : AddonField.values())
+            inject(field);
+    }
 
-        if (infoField != null) {
-            try {
-                infoField.set(instance, info);
-            } catch (IllegalAccessException e) {
-                CerberusRegistry.getInstance().warning("Unable to set info field for addon " + info.getSimpleName());
-            }
-        }
+    private void inject(AddonField field) {
+        MethodHandle setter = handlers.getSetter(field);
+        if (setter == null)
+            return;
 
-        if (settingsField != null) {
-            try {
-                settingsField.set(instance, settings);
-            } catch (IllegalAccessException e) {
-                CerberusRegistry.getInstance().warning("Unable to set settings field for addon " + info.getSimpleName());
-            }
+        try {
+            setter.invokeExact(instance, getInjectable(field));
+        } catch (Throwable t) {
+            CerberusRegistry.getInstance().warning("Unable to set " + field.name().toLowerCase()
+                    + " field for addon " + info.getSimpleName());
         }
+    }
 
-        if (dirField != null) {
-            try {
-                dirField.set(instance, dir);
-            } catch (IllegalAccessException e) {
-                CerberusRegistry.getInstance().warning("Unable to set directory field for addon " + info.getSimpleName());
-            }
+    /**
+     * Returns the value stored with the specified key in the settings of
+     * the addon, falling back to the settings of the addon service.
+     * @param key settings key
+     * @param def default value
+     * @return value
+     */
+    private long getSetting(String key, long def) {
+        CerberusAddon service = CerberusRegistry.getInstance().getService(CerberusAddon.class);
+        return AddonSettings.getLong(settings, key, AddonSettings.getLong(service.getSettings(), key, def));
+    }
+
+    private Object getInjectable(AddonField field) {
+        switch (field) {
+            case INFO:
+                return info;
+            case DIRECTORY:
+                return dir;
+            case SETTINGS:
+                return settings;
+            case EXECUTOR:
+                return getExecutor();
+            case SCHEDULER:
+                return getScheduler();
+            case METRICS:
+                return metrics;
+            case THREAD_FACTORY:
+                return getThreadFactory();
+            default:
+                throw new IllegalArgumentException("Unknown addon field " + field);
         }
     }
 
-    private Method findMethod(AddonMethod handle) {
-        Class<?> clazz = info.getJavaClass();
-        Method[] methods = clazz.getMethods();
+    private boolean invokeMethod(AddonMethod handle) {
+        MethodHandle m = handlers.get(handle);
+        if (m == null)
+            return false;
 
-        for (Method m : methods) {
-            if (m.isAnnotationPresent(AddonHandler.class)) {
-                AddonHandler handler = m.getAnnotation(AddonHandler.class);
-                if (handler.value() == handle)
-                    return m;
-            }
+        String name = handle.name().toLowerCase();
+        long start = System.nanoTime();
+        try {
+            return invokeHandler(m, name);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            metrics.record("handler." + name, nanos);
+            CerberusRegistry.getInstance().debug("Ran " + name + " handler of addon " + info.getSimpleName()
+                    + " in " + (nanos / 1_000_000) + "ms");
         }
-        return null;
     }
 
-    private Field findField(AddonField handle) {
-        Class<?> clazz = info.getJavaClass();
-        Field[] fields = clazz.getFields();
+    /**
+     * Will invoke a lifecycle handler of the addon.
+     *
+     * If a handler timeout is configured, the handler is run on the
+     * handler executor and interrupted, once the timeout expires.
+     *
+     * @param m handler method
+     * @param name handler name
+     * @return true, if the handler completed in time without exception
+     */
+    private boolean invokeHandler(MethodHandle m, String name) {
+        long timeout = getSetting("handler_timeout", 30000);
 
-        for (Field f : fields) {
-            if (f.isAnnotationPresent(FieldHandler.class) && f.getType().equals(handle.getReturnType())) {
-                FieldHandler handler = f.getAnnotation(FieldHandler.class);
-                if (handler.value() == handle)
-                    return f;
+        if (timeout <= 0) {
+            try {
+                Object ignore = m.invokeExact(instance);
+                return true;
+            } catch (Throwable t) {
+                events.getService().executeFullEIF(new ExceptionEvent(CerberusAddon.class,
+                        new InvocationTargetException(t)));
             }
+            return false;
         }
-        return null;
-    }
 
-    private boolean invokeMethod(AddonMethod handle) {
-        Method m = findMethod(handle);
-        if (m == null)
-            return false;
+        CerberusAddon service = CerberusRegistry.getInstance().getService(CerberusAddon.class);
+        // -1 while queued, 0 while running, 1 once returned, 2 once abandoned
+        AtomicInteger progress = new AtomicInteger(-1);
+        // the handler runs as a child of the calling lifecycle operation and
+        // may borrow its locks while the operation waits for it, so that it
+        // can call lifecycle methods of its own addon
+        AddonLifecycleExecutor.handOff();
+        Future<?> future = service.getHandlerExecutor().submit(AddonLifecycleExecutor.inherit(() -> {
+            progress.set(0);
+            try {
+                Object ignore = m.invokeExact(instance);
+                return null;
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            } finally {
+                if (!progress.compareAndSet(0, 1)) {
+                    int abandoned = service.trackAbandonedHandler(false);
+                    CerberusRegistry.getInstance().info("The abandoned " + name + " handler of addon "
+                            + info.getSimpleName() + " has returned; " + abandoned
+                            + " handler threads are still abandoned");
+                }
+            }
+        }));
 
         try {
-            m.invoke(instance);
+            future.get(timeout, TimeUnit.MILLISECONDS);
             return true;
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            CerberusRegistry.getInstance().getService(CerberusEvent.class)
-                    .executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            metrics.increment("handler.timeouts");
+            CerberusRegistry.getInstance().warning("The " + name + " handler of addon " + info.getSimpleName()
+                    + " did not complete within " + timeout + "ms and has been interrupted");
+            if (progress.get() == -1) {
+                CerberusRegistry.getInstance().warning("The " + name + " handler of addon " + info.getSimpleName()
+                        + " has not been started, since all handler threads are busy");
+            } else if (progress.compareAndSet(0, 2)) {
+                // the handler is still running; its thread stays occupied and
+                // keeps the class loader of the addon reachable until it returns
+                int abandoned = service.trackAbandonedHandler(true);
+                CerberusRegistry.getInstance().warning(abandoned + " handler threads are running past their "
+                        + "deadline");
+            }
+        } catch (ExecutionException e) {
+            events.getService().executeFullEIF(new ExceptionEvent(CerberusAddon.class, (Exception) e.getCause()));
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        } finally {
+            // an abandoned handler may still be inside a lifecycle method of
+            // the addon; the operation only continues once it has left it
+            AddonLifecycleExecutor.reclaim();
         }
         return false;
     }
 
     @Override
     public boolean enable() {
-        if (!CerberusRegistry.getInstance().getService(CerberusEvent.class)
-                .executeShortEIF(new AddonEnableEvent(info)))
+        lifecycleLock.lock();
+        try {
+            return enable(true);
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * Will enable the addon.
+     * @param event true, if the enable event should be fired
+     * @return success
+     */
+    boolean enable(boolean event) {
+        // failed addons may be enabled again, as before the state machine
+        if (!state.compareAndSet(AddonState.LOADED, AddonState.ENABLING)
+                && !state.compareAndSet(AddonState.FAILED, AddonState.ENABLING))
+            return state.get() == AddonState.ACTIVE;
+
+        if (event && !events.fire(AddonEnableEvent.class, AddonEnableEvent::new, info)) {
+            state.compareAndSet(AddonState.ENABLING, AddonState.LOADED);
+            return false;
+        }
+
+        // executors of a previous activation have been shut down on disable
+        tornDown = false;
+        inject(AddonField.EXECUTOR);
+        inject(AddonField.SCHEDULER);
+
+        long time = System.currentTimeMillis();
+        boolean present = handlers.get(AddonMethod.ENABLE) != null;
+        if (present && !invokeMethod(AddonMethod.ENABLE)) {
+            // stop the executors and threads started so far, so that a
+            // retry starts from scratch
+            teardown();
+            state.compareAndSet(AddonState.ENABLING, AddonState.FAILED);
             return false;
+        }
 
-        active = true;
-        activationTime = System.currentTimeMillis();
-        return invokeMethod(AddonMethod.ENABLE);
+        // publish the activation time before the state, so that it is
+        // visible to everyone who sees the addon as active
+        activationTime = time;
+        if (!state.compareAndSet(AddonState.ENABLING, AddonState.ACTIVE)) {
+            // the addon has been destroyed while its enable handler was running
+            activationTime = -1;
+            invokeMethod(AddonMethod.DISABLE);
+            return false;
+        }
+
+        // threads started by the enable handler of addons that still list
+        // their threads themselves; threads started later are picked up
+        // periodically instead of on every poll of the thread registry
+        if (handlers.get(AddonMethod.THREADS) != null) {
+            registerListedThreads();
+            long interval = getSetting("thread_list_interval", 5000);
+            if (interval > 0)
+                getScheduler().scheduleWithFixedDelay(this::registerListedThreads, interval, interval,
+                        TimeUnit.MILLISECONDS);
+        }
+        return present;
     }
 
     @Override
     public boolean disable() {
-        if (!CerberusRegistry.getInstance().getService(CerberusEvent.class)
-                .executeShortEIF(new AddonDisableEvent(info)))
+        lifecycleLock.lock();
+        try {
+            return disable(true);
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * Will disable the addon.
+     * @param event true, if the disable event should be fired
+     * @return success
+     */
+    boolean disable(boolean event) {
+        if (!state.compareAndSet(AddonState.ACTIVE, AddonState.DISABLING))
+            return false;
+
+        if (event && !events.fire(AddonDisableEvent.class, AddonDisableEvent::new, info)) {
+            state.compareAndSet(AddonState.DISABLING, AddonState.ACTIVE);
             return false;
+        }
 
-        active = false;
         activationTime = -1;
-        return invokeMethod(AddonMethod.DISABLE);
+        boolean present = handlers.get(AddonMethod.DISABLE) != null;
+        boolean success = !present || invokeMethod(AddonMethod.DISABLE);
+        teardown();
+
+        if (!success) {
+            state.compareAndSet(AddonState.DISABLING, AddonState.FAILED);
+            return false;
+        }
+
+        state.compareAndSet(AddonState.DISABLING, AddonState.LOADED);
+        return present;
+    }
+
+    /**
+     * Will stop everything the addon owns within the grace period
+     * configured as <code>disable_grace</code>.
+     *
+     * Scheduled tasks are cancelled, the executor is shut down and the
+     * threads of the addon are interrupted. Tasks still running after half
+     * of the grace period are interrupted as well. Threads that are still
+     * alive once the grace period has expired are reported. The thread
+     * group of the addon is destroyed as soon as it is empty. Threads only
+     * known from the thread list handler of the addon are listed once more
+     * beforehand, so that threads started since the last refresh are
+     * stopped as well.
+     */
+    private void teardown() {
+        registerListedThreads();
+
+        AddonExecutor executor;
+        AddonScheduler scheduler;
+        synchronized (this) {
+            executor = this.executor;
+            scheduler = this.scheduler;
+        }
+
+        long grace = getSetting("disable_grace", 5000);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(grace);
+        if (scheduler != null)
+            scheduler.shutdownNow();
+        if (executor != null)
+            executor.shutdown();
+
+        Thread current = Thread.currentThread();
+        Set<Thread> threads = getThreadRegistry().getThreads(info);
+        for (Thread thread : threads) {
+            if (thread != current)
+                thread.interrupt();
+        }
+
+        try {
+            if (executor != null && !executor.awaitTermination(grace / 2, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+                executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+            if (scheduler != null)
+                scheduler.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+            for (Thread thread : threads) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0)
+                    break;
+                if (thread != current)
+                    thread.join(remaining);
+            }
+        } catch (InterruptedException e) {
+            if (executor != null)
+                executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        ArrayList<Thread> lingering = new ArrayList<>();
+        for (Thread thread : threads) {
+            if (thread != current && thread.isAlive())
+                lingering.add(thread);
+        }
+        if (executor != null)
+            lingering.addAll(executor.getRunningThreads());
+        if (scheduler != null)
+            lingering.addAll(scheduler.getRunningThreads());
+
+        for (Thread thread : lingering)
+            CerberusRegistry.getInstance().warning("Thread " + thread.getName() + " of addon "
+                    + info.getSimpleName() + " did not stop within " + grace + "ms");
+        if (!lingering.isEmpty())
+            metrics.counter("teardown.lingering").add(lingering.size());
+
+        AddonThreadFactory factory;
+        synchronized (this) {
+            factory = threadFactory;
+        }
+        if (factory != null)
+            factory.destroyThreadGroup();
+        tornDown = true;
     }
 
     @Override
     public boolean isActive() {
-        return active;
+        return state.get() == AddonState.ACTIVE;
+    }
+
+    @Override
+    public @NotNull AddonState getState() {
+        return state.get();
     }
 
+    /**
+     * Returns the threads owned by the addon.
+     *
+     * These are the threads created through the thread factory of the
+     * addon. Threads returned by a thread list handler of the addon are
+     * registered on enable and every <code>thread_list_interval</code>
+     * milliseconds while the addon is active.
+     *
+     * @return snapshot of the threads owned by the addon
+     */
     @Override
     public @NotNull Collection<Thread> getThreadList() {
-        Method m = findMethod(AddonMethod.THREADS);
-        if (m == null || !m.getReturnType().isAssignableFrom(Collection.class))
-            return new HashSet<>();
+        return getThreadRegistry().getThreads(info);
+    }
+
+    /**
+     * Will register the threads returned by the thread list handler of
+     * the addon, if it has one.
+     */
+    private void registerListedThreads() {
+        MethodHandle m = handlers.get(AddonMethod.THREADS);
+        if (m == null)
+            return;
 
         try {
-            Object obj = m.invoke(instance);
-            if (obj instanceof Collection)
-                //noinspection unchecked
-                return (Collection<Thread>) obj;
-            else {
+            Object obj = m.invokeExact(instance);
+            if (!(obj instanceof Collection)) {
                 CerberusRegistry.getInstance().warning("Thread list method has the wrong return type");
-                return new HashSet<>();
+                return;
+            }
+
+            AddonThreadRegistry registry = getThreadRegistry();
+            registry.purge();
+            for (Object thread : (Collection<?>) obj) {
+                if (thread instanceof Thread && ((Thread) thread).isAlive())
+                    registry.register((Thread) thread, info);
             }
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            CerberusRegistry.getInstance().getService(CerberusEvent.class)
-                    .executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+        } catch (Throwable t) {
+            events.getService().executeFullEIF(new ExceptionEvent(CerberusAddon.class,
+                    new InvocationTargetException(t)));
         }
-        return new HashSet<>();
+    }
+
+    private static AddonThreadRegistry getThreadRegistry() {
+        return CerberusRegistry.getInstance().getService(CerberusAddon.class).getThreadRegistry();
+    }
+
+    /**
+     * Returns the thread factory of the addon.
+     *
+     * Threads created by the factory are tracked as threads of the addon,
+     * while they are running.
+     *
+     * @return addon thread factory
+     */
+    public synchronized @NotNull AddonThreadFactory getThreadFactory() {
+        if (threadFactory == null)
+            threadFactory = new AddonThreadFactory(info, getThreadRegistry());
+        return threadFactory;
     }
 
     @Override
@@ -190,6 +508,54 @@ public class JavaAddon implements Addon, Initable {
         return info;
     }
 
+    /**
+     * Returns the executor of the addon.
+     *
+     * The executor runs its tasks on the shared addon executor, at most
+     * <code>executor_concurrency</code> at a time, and is shut down and
+     * joined, once the addon is disabled or destroyed.
+     *
+     * @return addon executor
+     */
+    public synchronized @NotNull AddonExecutor getExecutor() {
+        if (executor == null || executor.isShutdown())
+            executor = new AddonExecutor(info.getSimpleName(),
+                    CerberusRegistry.getInstance().getService(CerberusAddon.class).getExecutor(),
+                    (int) getSetting("executor_concurrency", 4));
+        return executor;
+    }
+
+    /**
+     * Returns the scheduler of the addon.
+     *
+     * The scheduler runs its tasks on the shared addon scheduler and is
+     * shut down, once the addon is disabled or destroyed.
+     *
+     * @return addon scheduler
+     */
+    public synchronized @NotNull AddonScheduler getScheduler() {
+        if (scheduler == null || scheduler.isShutdown())
+            scheduler = new AddonScheduler(info.getSimpleName(),
+                    CerberusRegistry.getInstance().getService(CerberusAddon.class).getScheduler());
+        return scheduler;
+    }
+
+    /**
+     * Returns the metrics registry of the addon.
+     * @return addon metrics
+     */
+    public @NotNull AddonMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the resolved main class handle of the addon.
+     * @return addon handle
+     */
+    public @NotNull JavaAddonHandle getHandle() {
+        return handle;
+    }
+
     @Override
     public @NotNull Settings getSettings() {
         return settings;
@@ -207,8 +573,43 @@ public class JavaAddon implements Addon, Initable {
 
     @Override
     public void destroy() {
+        lifecycleLock.lock();
+        try {
+            destroy(true);
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * Will destroy the addon.
+     * @param events true, if the disable event should be fired
+     */
+    void destroy(boolean events) {
         if (isActive())
-            disable();
-        settings.destroy();
+            disable(events);
+        if (state.getAndSet(AddonState.DESTROYED) == AddonState.DESTROYED)
+            return;
+
+        // the addon has already been torn down, if it has been disabled
+        if (!tornDown)
+            teardown();
+        saveSettings();
+    }
+
+    /**
+     * Will persist and close the settings of the addon, unless this has
+     * already happened since the addon was initialized.
+     *
+     * This is safe to call while the addon is still being destroyed on
+     * another thread.
+     */
+    void saveSettings() {
+        synchronized (settings) {
+            if (settingsOpen) {
+                settings.destroy();
+                settingsOpen = false;
+            }
+        }
     }
 }
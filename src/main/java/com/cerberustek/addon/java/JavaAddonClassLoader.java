@@ -0,0 +1,261 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon.java;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipFile;
+
+/**
+ * Class loader for java addons and shared addon libraries.
+ *
+ * When the class loader is created, the central directories of all
+ * its jars are read into an index of all resources and packages. Class
+ * and resource lookups are therefore answered with a single hash probe
+ * instead of searching every jar, and lookups for classes that are not
+ * part of the jars fail without any I/O. Entries of multi-release jars
+ * are indexed by the version the vm would use. If a jar references
+ * other jars through the <code>Class-Path</code> of its manifest,
+ * lookups missing the index fall back to the url class loader, which
+ * resolves those jars.
+ *
+ * The class loader is parallel capable, so classes of an addon can be
+ * loaded concurrently from multiple threads.
+ */
+public class JavaAddonClassLoader extends URLClassLoader {
+
+    private static final String VERSIONS = "META-INF/versions/";
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    private final HashMap<String, Integer> resources = new HashMap<>();
+    private final HashMap<String, Integer> packages = new HashMap<>();
+    private final JarFile[] jars;
+    private final URL[] urls;
+    private final URL[] bases;
+    private final Manifest[] manifests;
+    private final boolean classPath;
+
+    public JavaAddonClassLoader(@NotNull File[] files, ClassLoader parent) throws IOException {
+        super(toURLs(files), parent);
+
+        urls = getURLs();
+        jars = new JarFile[files.length];
+        bases = new URL[files.length];
+        manifests = new Manifest[files.length];
+        int version = JarFile.runtimeVersion().feature();
+
+        boolean referencing = false;
+        try {
+            for (int i = 0; i < files.length; i++) {
+                // versioned entries of multi-release jars are resolved by the jar file
+                jars[i] = new JarFile(files[i], true, ZipFile.OPEN_READ, JarFile.runtimeVersion());
+                bases[i] = new URL("jar:" + urls[i] + "!/");
+                manifests[i] = jars[i].getManifest();
+                if (manifests[i] != null && manifests[i].getMainAttributes().getValue(Attributes.Name.CLASS_PATH)
+                        != null)
+                    referencing = true;
+
+                Enumeration<JarEntry> entries = jars[i].entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (entry.isDirectory())
+                        continue;
+
+                    String name = entry.getName();
+                    if (jars[i].isMultiRelease() && name.startsWith(VERSIONS)) {
+                        // entries for a newer vm are ignored, the others are
+                        // indexed by their unversioned name
+                        int slash = name.indexOf('/', VERSIONS.length());
+                        if (slash < 0)
+                            continue;
+                        try {
+                            if (Integer.parseInt(name.substring(VERSIONS.length(), slash)) > version)
+                                continue;
+                        } catch (NumberFormatException e) {
+                            continue;
+                        }
+                        name = name.substring(slash + 1);
+                    }
+                    resources.putIfAbsent(name, i);
+
+                    int index = name.lastIndexOf('/');
+                    if (index > 0)
+                        packages.putIfAbsent(name.substring(0, index).replace('/', '.'), i);
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        classPath = referencing;
+    }
+
+    private static URL[] toURLs(File[] files) throws MalformedURLException {
+        URL[] urls = new URL[files.length];
+        for (int i = 0; i < files.length; i++)
+            urls[i] = files[i].toURI().toURL();
+        return urls;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String path = name.replace('.', '/') + ".class";
+        Integer index = resources.get(path);
+        if (index == null) {
+            if (classPath)
+                return super.findClass(name);
+            throw new ClassNotFoundException(name);
+        }
+
+        JarFile jar = jars[index];
+        JarEntry entry;
+        byte[] bytes;
+        try {
+            entry = jar.getJarEntry(path);
+            if (entry == null)
+                throw new ClassNotFoundException(name);
+
+            try (InputStream inputStream = jar.getInputStream(entry)) {
+                bytes = inputStream.readAllBytes();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // an illegal state means that the class loader has been closed
+            throw new ClassNotFoundException(name, e);
+        }
+
+        int dot = name.lastIndexOf('.');
+        if (dot > 0)
+            definePackage(name.substring(0, dot));
+
+        // the signers are only known once the entry has been read
+        CodeSigner[] signers = entry.getCodeSigners();
+        return defineClass(name, bytes, 0, bytes.length, new CodeSource(urls[index], signers));
+    }
+
+    private void definePackage(String name) {
+        if (getDefinedPackage(name) != null)
+            return;
+
+        Integer index = packages.get(name);
+        try {
+            if (index != null && manifests[index] != null)
+                definePackage(name, manifests[index], urls[index]);
+            else
+                definePackage(name, null, null, null, null, null, null, null);
+        } catch (IllegalArgumentException ignore) {
+            // the package has been defined concurrently
+        }
+    }
+
+    @Override
+    public URL findResource(String name) {
+        Integer index = resources.get(name);
+        if (index == null)
+            return classPath ? super.findResource(name) : null;
+
+        // urls into multi-release jars are resolved by the url class loader
+        if (jars[index].isMultiRelease())
+            return super.findResource(name);
+
+        try {
+            return new URL(bases[index], name);
+        } catch (MalformedURLException e) {
+            return super.findResource(name);
+        }
+    }
+
+    @Override
+    public Enumeration<URL> findResources(String name) throws IOException {
+        if (!classPath && !resources.containsKey(name))
+            return Collections.emptyEnumeration();
+        return super.findResources(name);
+    }
+
+    /**
+     * Will open a resource from the jars of this class loader, without
+     * delegating to the parent class loader.
+     *
+     * If none of the jars contain the resource, this method will return
+     * null.
+     *
+     * @param name resource name
+     * @return resource input stream
+     */
+    public InputStream openResource(@NotNull String name) {
+        Integer index = resources.get(name);
+        if (index == null)
+            return null;
+
+        try {
+            JarEntry entry = jars[index].getJarEntry(name);
+            return entry == null ? null : jars[index].getInputStream(entry);
+        } catch (IOException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the names of all resources contained in the jars of this
+     * class loader.
+     * @return resource names
+     */
+    public @NotNull Set<String> getResourceNames() {
+        return Collections.unmodifiableSet(resources.keySet());
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException exception = null;
+        for (JarFile jar : jars) {
+            if (jar == null)
+                continue;
+
+            try {
+                jar.close();
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+
+        super.close();
+        if (exception != null)
+            throw exception;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon.java;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Identifies a specific state of an addon jar file.
+ *
+ * Two fingerprints are equal, if they point to the same file and the
+ * file has neither changed its size, nor its modification time, nor
+ * (if present) its content hash.
+ */
+public class JavaAddonFingerprint {
+
+    /** Hash value used, if the content hash has not been computed */
+    public static final long NO_HASH = -1;
+
+    private final String path;
+    private final long size;
+    private final long modified;
+    private final long hash;
+
+    public JavaAddonFingerprint(@NotNull String path, long size, long modified, long hash) {
+        this.path = path;
+        this.size = size;
+        this.modified = modified;
+        this.hash = hash;
+    }
+
+    /**
+     * Will create the fingerprint of the specified file in its current
+     * state.
+     * @param file addon file
+     * @param hash true, if the content hash should be computed as well
+     * @return fingerprint
+     * @throws IOException thrown, if the file content could not be
+     *          read for hashing
+     */
+    public static @NotNull JavaAddonFingerprint of(@NotNull File file, boolean hash) throws IOException {
+        return new JavaAddonFingerprint(file.getAbsolutePath(), file.length(), file.lastModified(),
+                hash ? hash(file) : NO_HASH);
+    }
+
+    private static long hash(File file) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) > 0)
+                crc.update(buffer, 0, read);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the absolute path of the addon file.
+     * @return path
+     */
+    public @NotNull String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the size of the addon file in bytes.
+     * @return file size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the last modification time of the addon file.
+     * @return modification time
+     */
+    public long getModified() {
+        return modified;
+    }
+
+    /**
+     * Returns the content hash of the addon file, or NO_HASH if the
+     * hash has not been computed.
+     * @return content hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof JavaAddonFingerprint))
+            return false;
+
+        JavaAddonFingerprint that = (JavaAddonFingerprint) o;
+        return size == that.size && modified == that.modified && hash == that.hash && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, size, modified, hash);
+    }
+
+    @Override
+    public String toString() {
+        return path + " [size=" + size + ", modified=" + modified + ", hash=" + Long.toHexString(hash) + "]";
+    }
+}
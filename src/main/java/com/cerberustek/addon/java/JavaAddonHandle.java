@@ -0,0 +1,153 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon.java;
+
+import com.cerberustek.CerberusRegistry;
+import com.cerberustek.exception.AddonLoadException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The resolved main class of a java addon together with the class
+ * loader it has been loaded with.
+ *
+ * Handles are only created once an addon is actually loaded, so that
+ * reading and listing addon infos does not load any classes.
+ */
+public class JavaAddonHandle {
+
+    private final JavaAddonInfo info;
+    private final JavaAddonFingerprint fingerprint;
+    private final JavaAddonClassLoader classLoader;
+    private final Class<?> javaClass;
+    private final JavaAddonLibraries.Usage shared;
+
+    private JavaAddonHandle(JavaAddonInfo info, JavaAddonFingerprint fingerprint, JavaAddonClassLoader classLoader,
+                            Class<?> javaClass, JavaAddonLibraries.Usage shared) {
+        this.info = info;
+        this.fingerprint = fingerprint;
+        this.classLoader = classLoader;
+        this.javaClass = javaClass;
+        this.shared = shared;
+    }
+
+    /**
+     * Will create a new class loader for the addon jar and load the
+     * main class of the addon.
+     * @param info addon info
+     * @param hash true, if the fingerprint of the jar should contain
+     *             the content hash
+     * @param libraries shared libraries, or null if there are none
+     * @return resolved addon handle
+     * @throws AddonLoadException thrown, if the main class could not
+     *          be loaded
+     */
+    public static @NotNull JavaAddonHandle resolve(@NotNull JavaAddonInfo info, boolean hash,
+                                                   @Nullable JavaAddonLibraries libraries) throws AddonLoadException {
+        JavaAddonFingerprint fingerprint;
+        JavaAddonClassLoader classLoader;
+        try {
+            fingerprint = JavaAddonFingerprint.of(info.jarFile(), hash);
+            classLoader = new JavaAddonClassLoader(new File[]{info.jarFile()},
+                    libraries != null ? libraries.getClassLoader() : ClassLoader.getSystemClassLoader());
+        } catch (IOException e) {
+            CerberusRegistry.getInstance().debug("Unable to read jar file of addon " + info.getSimpleName());
+            throw new AddonLoadException(info);
+        }
+
+        JavaAddonLibraries.Usage shared = libraries != null ? libraries.shared(classLoader)
+                : new JavaAddonLibraries.Usage();
+        try {
+            return new JavaAddonHandle(info, fingerprint, classLoader, classLoader.loadClass(info.getMainClass()),
+                    shared);
+        } catch (ClassNotFoundException | LinkageError e) {
+            CerberusRegistry.getInstance().debug("Could not load main class " + info.getMainClass()
+                    + " of addon " + info.getSimpleName());
+            try {
+                classLoader.close();
+            } catch (IOException ignore) {}
+            throw new AddonLoadException(info);
+        }
+    }
+
+    /**
+     * Returns the addon info this handle has been resolved from.
+     * @return addon info
+     */
+    public @NotNull JavaAddonInfo getInfo() {
+        return info;
+    }
+
+    /**
+     * Returns the fingerprint of the addon jar at the time the addon
+     * has been loaded.
+     * @return jar fingerprint
+     */
+    public @NotNull JavaAddonFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the classes of the addon jar, that are loaded from the
+     * shared libraries instead.
+     * @return shared library usage
+     */
+    public @NotNull JavaAddonLibraries.Usage getSharedUsage() {
+        return shared;
+    }
+
+    /**
+     * Returns the class loader of the addon.
+     * @return class loader
+     */
+    public @NotNull JavaAddonClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    /**
+     * Returns the main class of the addon.
+     * @return main class
+     */
+    public @NotNull Class<?> getJavaClass() {
+        return javaClass;
+    }
+
+    /**
+     * Will close the class loader of the addon.
+     *
+     * After the class loader has been closed, no further classes or
+     * resources can be loaded from the addon jar and the jar file handle
+     * is released.
+     */
+    public void close() {
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            CerberusRegistry.getInstance().warning("Unable to close class loader of addon " + info.getSimpleName());
+        }
+    }
+}
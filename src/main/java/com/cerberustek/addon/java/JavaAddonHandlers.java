@@ -0,0 +1,228 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon.java;
+
+import com.cerberustek.addon.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Handler table of an addon main class.
+ *
+ * The annotated handler methods and injectable fields of an addon class
+ * are resolved only once, and the handler methods are turned into
+ * method handles, which are then reused for every call. The tables are
+ * cached in a class value, so they are released together with the
+ * addon class when its class loader is collected.
+ *
+ * If the addon has been compiled with the addon index processor, the
+ * handlers are looked up by name from the generated index. Otherwise
+ * the addon class is scanned reflectively.
+ */
+public class JavaAddonHandlers {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<JavaAddonHandlers> HANDLERS = new ClassValue<>() {
+        @Override
+        protected JavaAddonHandlers computeValue(Class<?> type) {
+            return new JavaAddonHandlers(type);
+        }
+    };
+
+    private final MethodHandle[] methods = new MethodHandle[AddonMethod.values().length];
+    private final MethodHandle[] setters = new MethodHandle[AddonField.values().length];
+
+    private JavaAddonHandlers(Class<?> clazz) {
+        if (!readIndex(clazz)) {
+            Arrays.fill(methods, null);
+            Arrays.fill(setters, null);
+            scan(clazz);
+        }
+    }
+
+    /**
+     * Will resolve the handlers from the generated handler index of the
+     * addon class.
+     * @param clazz addon class
+     * @return false, if the class does not have a valid index
+     */
+    private boolean readIndex(Class<?> clazz) {
+        String path = AddonIndex.path(clazz.getName());
+        ClassLoader classLoader = clazz.getClassLoader();
+
+        InputStream inputStream;
+        if (classLoader instanceof JavaAddonClassLoader)
+            inputStream = ((JavaAddonClassLoader) classLoader).openResource(path);
+        else if (classLoader != null)
+            inputStream = classLoader.getResourceAsStream(path);
+        else
+            inputStream = null;
+        if (inputStream == null)
+            return false;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream,
+                StandardCharsets.UTF_8))) {
+            boolean versioned = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                String[] parts = line.split(" ");
+                if (parts.length != 2 && parts.length != 3)
+                    return false;
+
+                switch (parts[0]) {
+                    case "version":
+                        if (!parts[1].equals(Integer.toString(AddonIndex.VERSION)))
+                            return false;
+                        versioned = true;
+                        break;
+                    case "method":
+                        if (parts.length != 3 || !addMethod(clazz.getMethod(parts[2]),
+                                AddonMethod.valueOf(parts[1])))
+                            return false;
+                        break;
+                    case "field":
+                        if (parts.length != 3)
+                            return false;
+                        addField(clazz.getField(parts[2]), AddonField.valueOf(parts[1]));
+                        break;
+                    default:
+                        return false;
+                }
+            }
+            return versioned;
+        } catch (IOException | ReflectiveOperationException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Will resolve the handlers by scanning the public members of the
+     * addon class.
+     * @param clazz addon class
+     */
+    private void scan(Class<?> clazz) {
+        for (Method m : clazz.getMethods()) {
+            AddonHandler handler = m.getAnnotation(AddonHandler.class);
+            if (handler != null && m.getParameterCount() == 0)
+                addMethod(m, handler.value());
+        }
+
+        for (Field f : clazz.getFields()) {
+            FieldHandler handler = f.getAnnotation(FieldHandler.class);
+            if (handler != null)
+                addField(f, handler.value());
+        }
+    }
+
+    private boolean addMethod(Method m, AddonMethod method) {
+        if (methods[method.ordinal()] != null)
+            return true;
+
+        if (method == AddonMethod.THREADS && !m.getReturnType().isAssignableFrom(Collection.class))
+            return true;
+
+        try {
+            MethodHandle invoker = MethodHandles.lookup().unreflect(m);
+            if (Modifier.isStatic(m.getModifiers()))
+                invoker = MethodHandles.dropArguments(invoker, 0, Object.class);
+            methods[method.ordinal()] = invoker.asType(INVOKER_TYPE);
+            return true;
+        } catch (IllegalAccessException e) {
+            return false;
+        }
+    }
+
+    private void addField(Field f, AddonField field) {
+        if (setters[field.ordinal()] != null || !f.getType().equals(field.getReturnType())
+                || Modifier.isFinal(f.getModifiers()))
+            return;
+
+        try {
+            MethodHandle setter = MethodHandles.lookup().unreflectVarHandle(f)
+                    .toMethodHandle(VarHandle.AccessMode.SET);
+            if (Modifier.isStatic(f.getModifiers()))
+                setter = MethodHandles.dropArguments(setter, 0, Object.class);
+            setters[field.ordinal()] = setter.asType(SETTER_TYPE);
+        } catch (IllegalAccessException ignore) {}
+    }
+
+    /**
+     * Returns the handler table of the specified addon class.
+     * @param clazz addon main class
+     * @return handler table
+     */
+    public static @NotNull JavaAddonHandlers of(@NotNull Class<?> clazz) {
+        return HANDLERS.get(clazz);
+    }
+
+    /**
+     * Returns the invoker for the specified handler method.
+     *
+     * The invoker takes the addon instance as its only argument and
+     * returns the return value of the handler, or null if the handler
+     * does not return a value. If the addon class does not declare the
+     * handler, this method will return null.
+     *
+     * @param method handler method
+     * @return handler invoker
+     */
+    public @Nullable MethodHandle get(@NotNull AddonMethod method) {
+        return methods[method.ordinal()];
+    }
+
+    /**
+     * Returns the setter for the injectable field of the specified field
+     * handle.
+     *
+     * The setter takes the addon instance and the value to inject as its
+     * arguments. If the addon class does not declare a matching field,
+     * this method will return null.
+     *
+     * @param field field handle
+     * @return field setter
+     */
+    public @Nullable MethodHandle getSetter(@NotNull AddonField field) {
+        return setters[field.ordinal()];
+    }
+}
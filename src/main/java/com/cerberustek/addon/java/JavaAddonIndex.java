@@ -0,0 +1,272 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon.java;
+
+import com.cerberustek.CerberusRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent index of the addon info files of all known addon jars.
+ *
+ * The index is stored in the addon run directory and maps the
+ * fingerprint of each addon jar to the contents of its info file. As
+ * long as a jar does not change, its info can be retrieved from the
+ * index without opening the jar file.
+ */
+public class JavaAddonIndex {
+
+    private static final int MAGIC = 0x43414958;
+    /** Current version of the index file format */
+    public static final int VERSION = 2;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final File file;
+    private final String infoFileName;
+    private final boolean hash;
+
+    private volatile boolean dirty;
+
+    public JavaAddonIndex(@NotNull File file, @NotNull String infoFileName, boolean hash) {
+        this.file = file;
+        this.infoFileName = infoFileName;
+        this.hash = hash;
+    }
+
+    /**
+     * Will load the index from the index file.
+     *
+     * If the index file does not exist, uses an outdated format or is
+     * corrupted, the index is rebuilt from scratch.
+     */
+    public void load() {
+        entries.clear();
+        dirty = false;
+        if (!file.exists())
+            return;
+
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (inputStream.readInt() != MAGIC || inputStream.readInt() != VERSION
+                    || !inputStream.readUTF().equals(infoFileName) || inputStream.readBoolean() != hash) {
+                CerberusRegistry.getInstance().debug("Addon index \"" + file.getAbsolutePath()
+                        + "\" is outdated and will be rebuilt");
+                dirty = true;
+                return;
+            }
+
+            int count = inputStream.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = Entry.read(inputStream);
+                entries.put(entry.fingerprint.getPath(), entry);
+            }
+        } catch (IOException e) {
+            CerberusRegistry.getInstance().warning("Addon index \"" + file.getAbsolutePath()
+                    + "\" is corrupted and will be rebuilt");
+            entries.clear();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Will write the index to the index file, if it has been modified
+     * since the last time it was loaded or saved.
+     */
+    public void save() {
+        if (!dirty)
+            return;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeUTF(infoFileName);
+            outputStream.writeBoolean(hash);
+
+            Collection<Entry> values = entries.values();
+            outputStream.writeInt(values.size());
+            for (Entry entry : values)
+                entry.write(outputStream);
+        } catch (IOException e) {
+            CerberusRegistry.getInstance().warning("Unable to write addon index \"" + file.getAbsolutePath() + "\"");
+            return;
+        }
+
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            CerberusRegistry.getInstance().warning("Unable to replace addon index \"" + file.getAbsolutePath() + "\"");
+        }
+    }
+
+    /**
+     * Will create the fingerprint of the specified addon file the way
+     * it is stored in this index.
+     * @param jar addon file
+     * @return fingerprint
+     * @throws IOException thrown, if the file could not be hashed
+     */
+    public @NotNull JavaAddonFingerprint fingerprint(@NotNull File jar) throws IOException {
+        return JavaAddonFingerprint.of(jar, hash);
+    }
+
+    /**
+     * Returns the index entry for the specified fingerprint.
+     *
+     * If there is no entry for the addon file, or the entry was created
+     * for a different version of the file, this method will return null.
+     * Stale entries are removed from the index.
+     *
+     * @param fingerprint fingerprint of the addon file
+     * @return index entry
+     */
+    public @Nullable Entry lookup(@NotNull JavaAddonFingerprint fingerprint) {
+        Entry entry = entries.get(fingerprint.getPath());
+        if (entry == null)
+            return null;
+
+        if (!entry.fingerprint.equals(fingerprint)) {
+            if (entries.remove(fingerprint.getPath(), entry))
+                dirty = true;
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Will store the addon info for the specified fingerprint.
+     * @param fingerprint fingerprint of the addon file
+     * @param info addon info
+     */
+    public void update(@NotNull JavaAddonFingerprint fingerprint, @NotNull JavaAddonInfo info) {
+        entries.put(fingerprint.getPath(), new Entry(fingerprint, info.getMainClass(), info.getSimpleName(),
+                info.getVersion(), info.getAuthor(), info.getDependencies()));
+        dirty = true;
+    }
+
+    /**
+     * Will remove all entries for addon files, that are not contained
+     * in the specified collection.
+     * @param jars addon files to keep
+     */
+    public void retain(@NotNull Collection<File> jars) {
+        HashSet<String> paths = new HashSet<>();
+        for (File jar : jars)
+            paths.add(jar.getAbsolutePath());
+
+        if (entries.keySet().retainAll(paths))
+            dirty = true;
+    }
+
+    /**
+     * A single index entry containing the parsed info file of an addon
+     * jar.
+     */
+    public static class Entry {
+
+        private final JavaAddonFingerprint fingerprint;
+        private final String mainClass;
+        private final String name;
+        private final String version;
+        private final String[] authors;
+        private final String[] dependencies;
+
+        private Entry(JavaAddonFingerprint fingerprint, String mainClass, String name, String version,
+                      String[] authors, String[] dependencies) {
+            this.fingerprint = fingerprint;
+            this.mainClass = mainClass;
+            this.name = name;
+            this.version = version;
+            this.authors = authors;
+            this.dependencies = dependencies;
+        }
+
+        private static Entry read(DataInputStream inputStream) throws IOException {
+            JavaAddonFingerprint fingerprint = new JavaAddonFingerprint(inputStream.readUTF(),
+                    inputStream.readLong(), inputStream.readLong(), inputStream.readLong());
+            String mainClass = inputStream.readUTF();
+            String name = inputStream.readUTF();
+            String version = inputStream.readUTF();
+
+            String[] authors = new String[inputStream.readInt()];
+            for (int i = 0; i < authors.length; i++)
+                authors[i] = inputStream.readUTF();
+
+            String[] dependencies = new String[inputStream.readInt()];
+            for (int i = 0; i < dependencies.length; i++)
+                dependencies[i] = inputStream.readUTF();
+            return new Entry(fingerprint, mainClass, name, version, authors, dependencies);
+        }
+
+        private void write(DataOutputStream outputStream) throws IOException {
+            outputStream.writeUTF(fingerprint.getPath());
+            outputStream.writeLong(fingerprint.getSize());
+            outputStream.writeLong(fingerprint.getModified());
+            outputStream.writeLong(fingerprint.getHash());
+            outputStream.writeUTF(mainClass);
+            outputStream.writeUTF(name);
+            outputStream.writeUTF(version);
+
+            outputStream.writeInt(authors.length);
+            for (String author : authors)
+                outputStream.writeUTF(author);
+
+            outputStream.writeInt(dependencies.length);
+            for (String dependency : dependencies)
+                outputStream.writeUTF(dependency);
+        }
+
+        public @NotNull JavaAddonFingerprint getFingerprint() {
+            return fingerprint;
+        }
+
+        public @NotNull String getMainClass() {
+            return mainClass;
+        }
+
+        public @NotNull String getName() {
+            return name;
+        }
+
+        public @NotNull String getVersion() {
+            return version;
+        }
+
+        public @NotNull String[] getAuthors() {
+            return authors;
+        }
+
+        public @NotNull String[] getDependencies() {
+            return dependencies;
+        }
+    }
+}
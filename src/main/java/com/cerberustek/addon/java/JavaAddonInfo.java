@@ -32,33 +32,43 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.ArrayList;
 
+/**
+ * Addon info of a java addon.
+ *
+ * The info only contains the contents of the addon info file. The main
+ * class of the addon is not loaded, before the addon itself is loaded by
+ * the java addon manager.
+ */
 public class JavaAddonInfo implements AddonInfo {
 
+    private static final String DEPEND_TAG = "@depend";
+
     private final File file;
-    private final Class<?> clazz;
+    private final String mainClass;
     private final String version;
     private final String[] author;
     private final String name;
+    private final String[] dependencies;
 
-    public JavaAddonInfo(File file, Class<?> clazz, String name, String version, String... author) {
+    public JavaAddonInfo(File file, String mainClass, String name, String version, String... author) {
+        this(file, mainClass, name, version, author, new String[0]);
+    }
+
+    public JavaAddonInfo(File file, String mainClass, String name, String version, String[] author,
+                         String[] dependencies) {
         this.file = file;
-        this.clazz = clazz;
+        this.mainClass = mainClass;
         this.version = version;
         this.author = author;
         this.name = name;
+        this.dependencies = dependencies;
     }
 
     @Override
     public @NotNull String getMainClass() {
-        return clazz.getName();
-    }
-
-    public @NotNull Class<?> getJavaClass() {
-        return clazz;
+        return mainClass;
     }
 
     @Override
@@ -76,6 +86,11 @@ public class JavaAddonInfo implements AddonInfo {
         return name;
     }
 
+    @Override
+    public @NotNull String[] getDependencies() {
+        return dependencies;
+    }
+
     @Override
     public File jarFile() {
         return file;
@@ -88,6 +103,12 @@ public class JavaAddonInfo implements AddonInfo {
 
     /**
      * Will attempt to read the info file from the specified input stream.
+     *
+     * The info file lists the main class, the name, the version and the
+     * authors of the addon, one per line. Lines starting with
+     * <code>@depend</code> name an addon this addon depends on and may
+     * appear anywhere in the file.
+     *
      * @param inputStream input stream
      * @return into file
      */
@@ -99,12 +120,19 @@ public class JavaAddonInfo implements AddonInfo {
             String name = null;
             String version = null;
             ArrayList<String> authors = new ArrayList<>();
+            ArrayList<String> dependencies = new ArrayList<>();
 
             String line;
             int count = 0;
             while ((line = reader.readLine()) != null) {
                 if (line.startsWith("#"))
                     continue;
+                if (line.startsWith(DEPEND_TAG)) {
+                    String dependency = line.substring(DEPEND_TAG.length()).trim();
+                    if (!dependency.isEmpty())
+                        dependencies.add(dependency);
+                    continue;
+                }
 
                 switch (count) {
                     case 0:
@@ -126,16 +154,12 @@ public class JavaAddonInfo implements AddonInfo {
             if (count < 4)
                 return null;
 
-            // load class
-            URL url = file.toURI().toURL();
-            URLClassLoader cl = new URLClassLoader(new URL[]{url});
-            Class<?> clazz = cl.loadClass(classTag);
-
             String[] authorArray = new String[authors.size()];
             authors.toArray(authorArray);
 
-            return new JavaAddonInfo(file, clazz, name, version, authorArray);
-        } catch (IOException | ClassNotFoundException e) {
+            return new JavaAddonInfo(file, classTag, name, version, authorArray,
+                    dependencies.toArray(new String[0]));
+        } catch (IOException e) {
             CerberusRegistry.getInstance().getService(CerberusEvent.class)
                     .executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
         }
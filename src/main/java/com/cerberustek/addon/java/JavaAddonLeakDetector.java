@@ -0,0 +1,193 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon.java;
+
+import com.cerberustek.CerberusRegistry;
+import com.cerberustek.service.TerminalUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the class loaders of unloaded addons and reports the ones
+ * that are still reachable after a timeout.
+ *
+ * Class loaders can only be collected by a garbage collection, so a
+ * class loader is only reported once the vm has collected garbage or
+ * unloaded classes since the addon has been unloaded. On an idle heap,
+ * this may take a lot longer than the timeout.
+ *
+ * A class loader that survives the unload of its addon keeps all
+ * classes of the addon in metaspace, which usually means that some
+ * object of the addon is still referenced from outside of the addon.
+ */
+public class JavaAddonLeakDetector {
+
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+    private final Set<Tracked> tracked = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<ClassLoader> queue = new ReferenceQueue<>();
+    private final long timeout;
+
+    private ScheduledExecutorService scheduler;
+
+    public JavaAddonLeakDetector(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Will start checking for leaked class loaders periodically.
+     */
+    public synchronized void start() {
+        if (scheduler != null)
+            return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "addon-leak-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, timeout / 2);
+        scheduler.scheduleWithFixedDelay(this::check, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Will stop the periodic leak checks.
+     */
+    public synchronized void stop() {
+        if (scheduler == null)
+            return;
+
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Will start tracking the class loader of an unloaded addon.
+     * @param handle handle of the unloaded addon
+     */
+    public void track(@NotNull JavaAddonHandle handle) {
+        tracked.add(new Tracked(handle, queue, getCollectionCount(), classLoading.getUnloadedClassCount()));
+    }
+
+    /**
+     * Returns the amount of collections of all garbage collectors. The
+     * concurrent cycles unloading classes are not counted by every
+     * collector, so no single collector is relied on.
+     * @return total collection count
+     */
+    private long getCollectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            // collectors that do not count their collections return -1
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Returns true, if garbage has been collected or classes have been
+     * unloaded since the addon of the tracked class loader was unloaded.
+     * @param t tracked class loader
+     * @return has collected since
+     */
+    private boolean hasCollected(Tracked t) {
+        return classLoading.getUnloadedClassCount() > t.unloaded || getCollectionCount() > t.collections;
+    }
+
+    /**
+     * Will check all tracked class loaders and report the ones that are
+     * still reachable after the timeout, although garbage has been
+     * collected since.
+     */
+    public void check() {
+        Reference<? extends ClassLoader> reference;
+        while ((reference = queue.poll()) != null)
+            tracked.remove(reference);
+
+        long now = System.currentTimeMillis();
+        for (Tracked t : tracked) {
+            if (t.reported || now - t.time < timeout)
+                continue;
+
+            if (hasCollected(t)) {
+                t.reported = true;
+                CerberusRegistry.getInstance().warning("Class loader of addon " + TerminalUtil.ANSI_BLUE
+                        + t.name + TerminalUtil.ANSI_RESET + " (" + t.path + ") has not been collected "
+                        + ((now - t.time) / 1000) + "s after the addon has been unloaded, although garbage "
+                        + "has been collected since");
+            }
+        }
+    }
+
+    /**
+     * Returns the names of all addons whose class loaders have not been
+     * collected within the timeout after they have been unloaded, although
+     * garbage has been collected since.
+     * @return leaking addons
+     */
+    public @NotNull Collection<String> getLeaks() {
+        check();
+
+        ArrayList<String> leaks = new ArrayList<>();
+        for (Tracked t : tracked) {
+            if (t.reported)
+                leaks.add(t.name);
+        }
+        return leaks;
+    }
+
+    private static class Tracked extends PhantomReference<ClassLoader> {
+
+        private final String name;
+        private final String path;
+        private final long time;
+        private final long collections;
+        private final long unloaded;
+        private volatile boolean reported;
+
+        private Tracked(JavaAddonHandle handle, ReferenceQueue<ClassLoader> queue, long collections,
+                        long unloaded) {
+            super(handle.getClassLoader(), queue);
+            this.name = handle.getInfo().getSimpleName();
+            this.path = handle.getInfo().jarFile().getPath();
+            this.time = System.currentTimeMillis();
+            this.collections = collections;
+            this.unloaded = unloaded;
+        }
+    }
+}
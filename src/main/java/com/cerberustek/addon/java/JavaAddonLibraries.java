@@ -0,0 +1,187 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon.java;
+
+import com.cerberustek.CerberusRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Shared library layer for java addons.
+ *
+ * All jars in the library directory are loaded once into a common
+ * class loader, which is used as the parent of every addon class
+ * loader. Since class loaders delegate to their parent first, addons
+ * that bundle the same libraries share a single copy of the library
+ * classes instead of loading one copy each.
+ */
+public class JavaAddonLibraries {
+
+    private final HashMap<String, Long> classes = new HashMap<>();
+    private final JavaAddonClassLoader classLoader;
+    private final int jars;
+
+    private JavaAddonLibraries(JavaAddonClassLoader classLoader, int jars) {
+        this.classLoader = classLoader;
+        this.jars = jars;
+    }
+
+    /**
+     * Will load all library jars from the specified directory.
+     *
+     * If the directory does not exist or does not contain any jars,
+     * this method will return null.
+     *
+     * @param dir library directory
+     * @return shared libraries
+     */
+    public static @Nullable JavaAddonLibraries load(@NotNull File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".jar"));
+        if (files == null || files.length == 0)
+            return null;
+        Arrays.sort(files);
+
+        JavaAddonLibraries libraries;
+        try {
+            libraries = new JavaAddonLibraries(new JavaAddonClassLoader(files, ClassLoader.getSystemClassLoader()),
+                    files.length);
+        } catch (IOException e) {
+            CerberusRegistry.getInstance().warning("Unable to open shared libraries in \""
+                    + dir.getAbsolutePath() + "\"");
+            return null;
+        }
+
+        for (File file : files) {
+            try (ZipFile zipFile = new ZipFile(file)) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.getName().endsWith(".class"))
+                        libraries.classes.putIfAbsent(entry.getName(), Math.max(0, entry.getSize()));
+                }
+            } catch (IOException e) {
+                CerberusRegistry.getInstance().warning("Unable to read shared library \""
+                        + file.getAbsolutePath() + "\"");
+            }
+        }
+        return libraries;
+    }
+
+    /**
+     * Returns the class loader containing the shared libraries.
+     * @return shared class loader
+     */
+    public @NotNull ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    /**
+     * Returns the amount of library jars.
+     * @return library jar count
+     */
+    public int getJarCount() {
+        return jars;
+    }
+
+    /**
+     * Returns the amount of classes contained in the shared libraries.
+     * @return shared class count
+     */
+    public int getClassCount() {
+        return classes.size();
+    }
+
+    /**
+     * Will count the classes bundled in the jar of the specified addon
+     * class loader, that are provided by the shared libraries instead.
+     * @param classLoader addon class loader
+     * @return classes and bytes the addon shares with the libraries
+     */
+    public @NotNull Usage shared(@NotNull JavaAddonClassLoader classLoader) {
+        Usage usage = new Usage();
+        for (String name : classLoader.getResourceNames()) {
+            Long size = classes.get(name);
+            if (size != null) {
+                usage.classes++;
+                usage.bytes += size;
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * Will close the shared class loader.
+     */
+    public void close() {
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            CerberusRegistry.getInstance().warning("Unable to close shared library class loader");
+        }
+    }
+
+    /**
+     * Amount of classes and class file bytes, that are loaded from the
+     * shared libraries instead of an addon jar.
+     */
+    public static class Usage {
+
+        private int classes;
+        private long bytes;
+
+        /**
+         * Will add the specified usage to this usage.
+         * @param usage usage to add
+         */
+        public void add(@NotNull Usage usage) {
+            classes += usage.classes;
+            bytes += usage.bytes;
+        }
+
+        /**
+         * Returns the amount of duplicate classes.
+         * @return class count
+         */
+        public int getClasses() {
+            return classes;
+        }
+
+        /**
+         * Returns the size of the duplicate class files in bytes. This is
+         * an estimate of the metaspace saved.
+         * @return class file bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -24,44 +24,69 @@ package com.cerberustek.addon.java;
 
 import com.cerberustek.CerberusEvent;
 import com.cerberustek.CerberusRegistry;
+import com.cerberustek.events.AddonBatchEvent;
+import com.cerberustek.events.AddonEvents;
 import com.cerberustek.events.AddonLoadEvent;
 import com.cerberustek.events.AddonUnloadEvent;
+import com.cerberustek.events.ExceptionEvent;
 import com.cerberustek.exception.AddonInfoLoadException;
 import com.cerberustek.exception.AddonLoadException;
 import com.cerberustek.service.TerminalUtil;
 import com.cerberustek.settings.Settings;
 import com.cerberustek.CerberusAddon;
 import com.cerberustek.addon.Addon;
+import com.cerberustek.addon.AddonDependencyGraph;
 import com.cerberustek.addon.AddonInfo;
+import com.cerberustek.addon.AddonLifecycleExecutor;
+import com.cerberustek.addon.AddonLifecycleLock;
 import com.cerberustek.addon.AddonManager;
+import com.cerberustek.addon.AddonSettings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.jar.JarInputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 public class JavaAddonManager implements AddonManager {
 
-    private final HashMap<AddonInfo, JavaAddon> addons = new HashMap<>();
+    private final ConcurrentHashMap<AddonInfo, JavaAddon> addons = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AddonInfo> keys = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AddonLifecycleLock> locks = new ConcurrentHashMap<>();
+    private final AddonLifecycleLock scanLock = new AddonLifecycleLock();
 
     private File dir;
     private File runDir;
     private String infoFileName;
+    private int discoveryThreads;
+    private int enableThreads;
+    private boolean perAddonEvents = true;
+    private volatile JavaAddonScanReport lastScan;
+    private JavaAddonIndex index;
+    private boolean hashJars;
+    private boolean incrementalReload;
+    private JavaAddonWatcher watcher;
+    private JavaAddonLeakDetector leakDetector;
+    private JavaAddonLibraries libraries;
 
     private CerberusAddon addon;
-    private CerberusEvent event;
+    private AddonEvents events;
 
     public JavaAddonManager() {
         dir = new File("addons/java/");
         runDir = new File("addons/run/");
+        discoveryThreads = Runtime.getRuntime().availableProcessors();
+        enableThreads = Runtime.getRuntime().availableProcessors();
     }
     
     @Override
@@ -71,17 +96,106 @@ public class JavaAddonManager implements AddonManager {
 
     @Override
     public @NotNull Addon loadAddon(@NotNull AddonInfo info) throws AddonLoadException {
+        try {
+            return lifecycleExecutor().call(getKey(info), () -> loadLocked(info));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AddonLoadException)
+                throw (AddonLoadException) e.getCause();
+            throw e;
+        }
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Addon> loadAddonAsync(@NotNull AddonInfo info) {
+        return lifecycleExecutor().submit(getKey(info), () -> loadLocked(info));
+    }
+
+    private JavaAddon loadLocked(AddonInfo info) throws AddonLoadException {
+        return loadLocked(info, true);
+    }
+
+    private JavaAddon loadLocked(AddonInfo info, boolean events) throws AddonLoadException {
         if (!(info instanceof JavaAddonInfo))
             throw new AddonLoadException(info);
 
-        if (addons.containsKey(info))
-            return addons.get(info);
+        AddonLifecycleLock lock = getLock(info);
+        lock.lock();
+        try {
+            return load((JavaAddonInfo) info, events);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private JavaAddon load(JavaAddonInfo info, boolean events) throws AddonLoadException {
+        JavaAddon loaded = find(info);
+        if (loaded != null)
+            return loaded;
 
-        if (!getEventService().executeShortEIF(new AddonLoadEvent(info)))
+        JavaAddon addon = prepare(info, events);
+        init(addon);
+
+        register(addon);
+        return addon;
+    }
+
+    /**
+     * Returns the loaded addon of the specified info, or of any other info
+     * read from the same jar file.
+     * @param info addon info
+     * @return loaded addon, or null if the addon is not loaded
+     */
+    private @Nullable JavaAddon find(AddonInfo info) {
+        JavaAddon addon = addons.get(info);
+        if (addon != null)
+            return addon;
+
+        AddonInfo loaded = keys.get(getKey(info));
+        return loaded != null ? addons.get(loaded) : null;
+    }
+
+    private void register(JavaAddon addon) {
+        keys.put(getKey(addon.getInfo()), addon.getInfo());
+        addons.put(addon.getInfo(), addon);
+    }
+
+    private void deregister(JavaAddon addon) {
+        addons.remove(addon.getInfo());
+        keys.remove(getKey(addon.getInfo()), addon.getInfo());
+    }
+
+    /**
+     * Will initialize a created addon. If the initialization fails, the
+     * class loader of the addon is closed.
+     * @param addon created addon
+     * @throws AddonLoadException thrown, if the addon could not be
+     *          initialized
+     */
+    private void init(JavaAddon addon) throws AddonLoadException {
+        try {
+            addon.init();
+        } catch (RuntimeException e) {
+            addon.getHandle().close();
+            getEventService().executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+            throw new AddonLoadException(addon.getInfo());
+        }
+    }
+
+    /**
+     * Will load the main class of the addon and create its instance,
+     * without initializing the addon.
+     * @param info addon info
+     * @param events true, if the load event should be fired
+     * @return created addon
+     * @throws AddonLoadException thrown, if the addon could not be created
+     */
+    private JavaAddon prepare(JavaAddonInfo info, boolean events) throws AddonLoadException {
+        if (events && !getEvents().fire(AddonLoadEvent.class, AddonLoadEvent::new, info))
             throw new AddonLoadException(info);
 
+        JavaAddonHandle handle = JavaAddonHandle.resolve(info, hashJars, libraries);
         try {
-            Constructor<?> constructor = ((JavaAddonInfo) info).getJavaClass().getConstructor();
+            Constructor<?> constructor = handle.getJavaClass().getConstructor();
             Object instance = constructor.newInstance();
 
             File pluginDir = runDir.toPath().resolve(info.getSimpleName()).toFile();
@@ -94,11 +208,7 @@ public class JavaAddonManager implements AddonManager {
                             info.getSimpleName());
                 }
             }
-            JavaAddon addon = new JavaAddon(instance, (JavaAddonInfo) info, pluginDir);
-            addon.init();
-
-            addons.put(info, addon);
-            return addon;
+            return new JavaAddon(instance, handle, pluginDir, getLock(info));
         } catch (NoSuchMethodException e) {
             CerberusRegistry.getInstance().debug("Could not find fitting constructor of main class for addon "
                         + info.getSimpleName());
@@ -110,26 +220,81 @@ public class JavaAddonManager implements AddonManager {
         } catch (InvocationTargetException e) {
             CerberusRegistry.getInstance().debug("Failed to invoke constructor of main class from addon "
                         + info.getSimpleName());
+        } catch (RuntimeException e) {
+            getEventService().executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
         }
+        handle.close();
         throw new AddonLoadException(info);
     }
 
+    /**
+     * Returns the key identifying the addon of the specified info across
+     * info instances, which is the canonical path of its jar file.
+     * @param info addon info
+     * @return addon key
+     */
+    private static String getKey(AddonInfo info) {
+        return getKey(info.jarFile());
+    }
+
+    /**
+     * Returns the key of the addon loaded from the specified jar file.
+     * @param file jar file
+     * @return addon key
+     */
+    private static String getKey(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Returns the lock serializing the lifecycle of the addon of the
+     * specified info.
+     *
+     * Infos read separately from the same jar file share the same lock.
+     * Locks are kept for the lifetime of the manager, so that an addon
+     * never ends up with two locks.
+     *
+     * @param info addon info
+     * @return lifecycle lock
+     */
+    private AddonLifecycleLock getLock(AddonInfo info) {
+        return locks.computeIfAbsent(getKey(info), key -> new AddonLifecycleLock());
+    }
+
     @Override
     public @Nullable Addon getAddon(@NotNull AddonInfo info) {
-        return addons.get(info);
+        return find(info);
     }
 
     @Override
     public @NotNull AddonInfo loadInfo(@NotNull File file) throws AddonInfoLoadException {
-        try (JarInputStream inputStream = new JarInputStream(new FileInputStream(file))) {
+        JavaAddonFingerprint fingerprint = null;
+        if (index != null) {
+            try {
+                fingerprint = index.fingerprint(file);
+                JavaAddonIndex.Entry entry = index.lookup(fingerprint);
+                if (entry != null)
+                    return new JavaAddonInfo(file, entry.getMainClass(), entry.getName(), entry.getVersion(),
+                            entry.getAuthors(), entry.getDependencies());
+            } catch (IOException e) {
+                fingerprint = null;
+            }
+        }
 
-            ZipEntry current;
+        // the zip file only reads the central directory, so the info file
+        // can be found without inflating the entries in front of it
+        try (ZipFile zipFile = new ZipFile(file)) {
+
+            ZipEntry entry = zipFile.getEntry(infoFileName);
             JavaAddonInfo info = null;
 
-            while ((current = inputStream.getNextEntry()) != null) {
-                if (current.getName().equals(infoFileName)) {
+            if (entry != null) {
+                try (InputStream inputStream = zipFile.getInputStream(entry)) {
                     info = JavaAddonInfo.readInfo(file, inputStream);
-                    break;
                 }
             }
 
@@ -138,8 +303,11 @@ public class JavaAddonManager implements AddonManager {
                             + file.getAbsolutePath() + "\"");
                 throw new AddonInfoLoadException(file);
             }
+
+            if (fingerprint != null)
+                index.update(fingerprint, info);
             return info;
-        } catch (FileNotFoundException e) {
+        } catch (FileNotFoundException | NoSuchFileException e) {
             CerberusRegistry.getInstance().warning("Addon file \"" + file.getAbsolutePath() + "\" does not exist");
         } catch (IOException e) {
             CerberusRegistry.getInstance().warning("Unable to access addon file \"" + file.getAbsolutePath() + "\"" +
@@ -150,65 +318,898 @@ public class JavaAddonManager implements AddonManager {
 
     @Override
     public void unload(@NotNull AddonInfo info) {
-        JavaAddon addon = addons.get(info);
-        if (addon != null && getEventService().executeShortEIF(new AddonUnloadEvent(info))) {
-            addon.destroy();
-            addons.remove(info);
+        lifecycleExecutor().call(getKey(info), () -> {
+            unloadLocked(info);
+            return null;
+        });
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> unloadAsync(@NotNull AddonInfo info) {
+        return lifecycleExecutor().submit(getKey(info), () -> unloadLocked(info));
+    }
+
+    private void unloadLocked(AddonInfo info) {
+        unloadLocked(info, true);
+    }
+
+    private void unloadLocked(AddonInfo info, boolean events) {
+        if (!(info instanceof JavaAddonInfo))
+            return;
+
+        AddonLifecycleLock lock = getLock(info);
+        lock.lock();
+        try {
+            JavaAddon addon = find(info);
+            if (addon != null && (!events || getEvents().fire(AddonUnloadEvent.class, AddonUnloadEvent::new,
+                    addon.getInfo()))) {
+                deregister(addon);
+                release(addon, events);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public void unloadAll() {
-        addons.values().forEach(JavaAddon::destroy);
-        addons.clear();
+        ArrayList<AddonInfo> infos = new ArrayList<>(addons.keySet());
+        if (infos.isEmpty())
+            return;
+
+        if (!fireBatch(infos, Collections.emptyList())) {
+            CerberusRegistry.getInstance().warning("Unloading " + infos.size() + " addons has been vetoed");
+            return;
+        }
+        unloadAll(infos);
+    }
+
+    /**
+     * Will unload the specified addons as part of an approved batch.
+     * @param infos addons to unload
+     */
+    private void unloadAll(Collection<AddonInfo> infos) {
+        for (AddonInfo info : infos) {
+            runOrdered(info, () -> {
+                AddonLifecycleLock lock = getLock(info);
+                lock.lock();
+                try {
+                    JavaAddon addon = addons.get(info);
+                    if (addon != null) {
+                        deregister(addon);
+                        release(addon, perAddonEvents);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Will fire the batch event of a reload, unless batch events are
+     * muted or the batch is empty.
+     * @param unloading addons to unload
+     * @param loading addons to load
+     * @return true, if the batch has been approved
+     */
+    private boolean fireBatch(Collection<AddonInfo> unloading, Collection<AddonInfo> loading) {
+        if (unloading.isEmpty() && loading.isEmpty() || !getEvents().isDispatched(AddonBatchEvent.class))
+            return true;
+        return getEventService().executeShortEIF(new AddonBatchEvent(unloading, loading));
+    }
+
+    /**
+     * Will run a step of a bulk operation on a single addon, once all
+     * lifecycle operations previously requested for the addon have
+     * completed. The step runs as a child of the calling operation, which
+     * hands its locks off to it until it has completed.
+     * @param info addon info
+     * @param task step to run
+     * @param <T> result type
+     * @return result of the step
+     */
+    private <T> T runOrdered(AddonInfo info, Callable<T> task) {
+        AddonLifecycleExecutor.handOff();
+        try {
+            return AddonLifecycleExecutor.join(lifecycleExecutor().submit(getKey(info), task, Runnable::run));
+        } finally {
+            AddonLifecycleExecutor.reclaim();
+        }
+    }
+
+    /**
+     * Will unload all addons in reverse dependency order, until the
+     * deadline has passed. Addons that do not depend on each other are
+     * unloaded concurrently.
+     * @param deadline deadline as a {@link System#nanoTime()} value
+     * @return addons that could not be unloaded before the deadline
+     */
+    private List<AddonInfo> unloadAll(long deadline) {
+        ArrayList<AddonInfo> infos = new ArrayList<>(addons.keySet());
+        AddonDependencyGraph<AddonInfo> graph = new AddonDependencyGraph<>(infos, AddonInfo::getSimpleName,
+                AddonInfo::getDependencies, name -> true);
+
+        ArrayList<List<AddonInfo>> waves = new ArrayList<>(graph.getWaves());
+        HashSet<AddonInfo> scheduled = new HashSet<>();
+        waves.forEach(scheduled::addAll);
+
+        // addons caught in dependency cycles are unloaded first
+        ArrayList<AddonInfo> remaining = new ArrayList<>();
+        for (AddonInfo info : infos) {
+            if (!scheduled.contains(info))
+                remaining.add(info);
+        }
+        if (!remaining.isEmpty())
+            waves.add(remaining);
+        Collections.reverse(waves);
+
+        int maxWave = 0;
+        for (List<AddonInfo> wave : waves)
+            maxWave = Math.max(maxWave, wave.size());
+
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(enableThreads, maxWave)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "addon-shutdown-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        ArrayList<AddonInfo> missed = new ArrayList<>();
+        try {
+            for (List<AddonInfo> wave : waves) {
+                if (System.nanoTime() - deadline >= 0) {
+                    missed.addAll(wave);
+                    continue;
+                }
+
+                LinkedHashMap<AddonInfo, Future<Boolean>> futures = new LinkedHashMap<>();
+                for (AddonInfo info : wave)
+                    futures.put(info, executor.submit(() -> unload(info, deadline)));
+
+                for (Map.Entry<AddonInfo, Future<Boolean>> entry : futures.entrySet()) {
+                    try {
+                        if (!entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS))
+                            missed.add(entry.getKey());
+                    } catch (TimeoutException e) {
+                        missed.add(entry.getKey());
+                    } catch (ExecutionException e) {
+                        missed.add(entry.getKey());
+                        getEventService().executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (AddonInfo info : infos) {
+                if (addons.containsKey(info) && !missed.contains(info))
+                    missed.add(info);
+            }
+        } finally {
+            // do not interrupt addons that are still shutting down
+            executor.shutdown();
+        }
+
+        // persist the settings of the addons that did not make it in time
+        for (AddonInfo info : missed) {
+            JavaAddon addon = addons.get(info);
+            if (addon != null)
+                addon.saveSettings();
+        }
+        return missed;
+    }
+
+    private boolean unload(AddonInfo info, long deadline) throws InterruptedException {
+        AddonLifecycleLock lock = getLock(info);
+        if (!lock.tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS))
+            return false;
+
+        try {
+            // keep the addon registered while it is released, so that its
+            // settings can still be persisted should it miss the deadline
+            JavaAddon addon = addons.get(info);
+            if (addon != null) {
+                release(addon, true);
+                deregister(addon);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Will destroy an addon and close its class loader.
+     * @param addon addon to release
+     * @param events true, if the disable event should be fired
+     */
+    private void release(JavaAddon addon, boolean events) {
+        addon.destroy(events);
+        addon.getHandle().close();
+        getAddonService().getThreadRegistry().remove(addon.getInfo());
+
+        if (leakDetector != null)
+            leakDetector.track(addon.getHandle());
+    }
+
+    /**
+     * Returns the amount of classes bundled by the loaded addons, which
+     * are loaded from the shared libraries instead of once per addon.
+     * @return shared library usage of all loaded addons
+     */
+    public @NotNull JavaAddonLibraries.Usage getSharedLibraryUsage() {
+        JavaAddonLibraries.Usage usage = new JavaAddonLibraries.Usage();
+        for (JavaAddon addon : addons.values())
+            usage.add(addon.getHandle().getSharedUsage());
+        return usage;
+    }
+
+    /**
+     * Returns the names of all unloaded addons whose class loaders are
+     * still reachable after the leak timeout, although garbage has been
+     * collected since they have been unloaded.
+     *
+     * If leak detection is disabled, the returned collection is empty.
+     *
+     * @return leaking addons
+     */
+    public @NotNull Collection<String> getLeakedAddons() {
+        if (leakDetector == null)
+            return Collections.emptyList();
+        return leakDetector.getLeaks();
     }
 
     @Override
     public void reload() {
-        unloadAll();
+        lifecycleExecutor().call(this, () -> {
+            reloadAll();
+            return null;
+        });
+    }
 
-        File[] files = dir.listFiles();
-        if (files == null)
-            return;
+    @Override
+    public @NotNull CompletableFuture<Void> reloadAsync() {
+        return lifecycleExecutor().submit(this, this::reloadAll);
+    }
+
+    private void reloadAll() {
+        scanLock.lock();
+        try {
+            if (incrementalReload && !addons.isEmpty()) {
+                CerberusRegistry.getInstance().info(reloadChanged().toString());
+                return;
+            }
+
+            File[] files = listAddonFiles();
+            if (files == null)
+                files = new File[0];
+
+            // the new addons are discovered first, so that the whole reload
+            // can be approved at once; every loaded addon is unloaded, so
+            // none of them satisfies a dependency
+            ArrayList<AddonInfo> unloading = new ArrayList<>(addons.keySet());
+            Scan scan = plan(files, name -> false);
+            if (!fireBatch(unloading, scan.loading)) {
+                CerberusRegistry.getInstance().warning("Reloading " + unloading.size() + " loaded and "
+                        + scan.loading.size() + " discovered addons has been vetoed");
+                complete(scan, files, false);
+                return;
+            }
+
+            unloadAll(unloading);
+            if (!addons.isEmpty()) {
+                CerberusRegistry.getInstance().warning("Reload aborted, the loaded addons could not be unloaded");
+                return;
+            }
+            complete(scan, files, true);
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    /**
+     * Will reload only the addons whose jar files have changed since they
+     * have been loaded.
+     *
+     * New jar files in the addon directory are loaded and enabled, addons
+     * whose jar file has been modified are swapped and addons whose jar
+     * file has been removed are unloaded. All other addons keep running.
+     *
+     * @return summary of the applied changes
+     */
+    public @NotNull JavaAddonReloadSummary reloadChanged() {
+        scanLock.lock();
+        try {
+            File[] files = listAddonFiles();
+            if (files == null)
+                files = new File[0];
+
+            HashMap<String, JavaAddon> loaded = new HashMap<>();
+            for (JavaAddon addon : addons.values())
+                loaded.put(getKey(addon.getInfo()), addon);
+            return reloadChanged(Arrays.asList(files), loaded);
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    /**
+     * Will reload only the specified jar files.
+     *
+     * Jar files that do not have a loaded addon are loaded, jar files
+     * that have changed since their addon has been loaded are swapped
+     * and the addons of jar files that no longer exist are unloaded.
+     *
+     * @param jars jar files to reload
+     * @return summary of the applied changes
+     */
+    public @NotNull JavaAddonReloadSummary reloadChanged(@NotNull Collection<File> jars) {
+        scanLock.lock();
+        try {
+            HashSet<String> paths = new HashSet<>();
+            for (File jar : jars)
+                paths.add(getKey(jar));
+
+            HashMap<String, JavaAddon> loaded = new HashMap<>();
+            for (JavaAddon addon : addons.values()) {
+                String key = getKey(addon.getInfo());
+                if (paths.contains(key))
+                    loaded.put(key, addon);
+            }
+
+            ArrayList<File> existing = new ArrayList<>();
+            for (File jar : jars) {
+                if (jar.exists())
+                    existing.add(jar);
+            }
+            existing.sort(null);
+            return reloadChanged(existing, loaded);
+        } finally {
+            scanLock.unlock();
+        }
+    }
 
+    /**
+     * Will apply the changes between the specified jar files and the
+     * currently loaded addons.
+     * @param files existing jar files to compare
+     * @param loaded loaded addons by key; addons that are not matched
+     *               by any of the files are unloaded
+     * @return summary of the applied changes
+     */
+    private JavaAddonReloadSummary reloadChanged(List<File> files, HashMap<String, JavaAddon> loaded) {
+        JavaAddonReloadSummary summary = new JavaAddonReloadSummary();
+        LinkedHashMap<File, JavaAddon> changed = new LinkedHashMap<>();
+        ArrayList<File> pending = new ArrayList<>();
         for (File file : files) {
-            if (file == null)
+            JavaAddon addon = loaded.remove(getKey(file));
+            if (addon == null) {
+                pending.add(file);
                 continue;
+            }
 
+            JavaAddonFingerprint fingerprint;
             try {
-                AddonInfo info = loadInfo(file);
-                loadAddon(info).enable();
-            } catch (AddonInfoLoadException | AddonLoadException ignore) {}
+                fingerprint = JavaAddonFingerprint.of(file, hashJars);
+            } catch (IOException e) {
+                fingerprint = null;
+            }
+
+            if (addon.getHandle().getFingerprint().equals(fingerprint))
+                summary.addUnchanged(addon.getInfo());
+            else
+                changed.put(file, addon);
+        }
+
+        // the infos of the changed jars are read up front, so that the
+        // batch event can carry the new versions
+        LinkedHashMap<File, JavaAddonInfo> replacements = new LinkedHashMap<>();
+        for (Map.Entry<File, JavaAddon> entry : changed.entrySet()) {
+            try {
+                replacements.put(entry.getKey(), (JavaAddonInfo) loadInfo(entry.getKey()));
+            } catch (AddonInfoLoadException e) {
+                CerberusRegistry.getInstance().warning("Keeping addon " + TerminalUtil.ANSI_BLUE
+                        + entry.getValue().getInfo().getSimpleName() + TerminalUtil.ANSI_RESET
+                        + ", the info file of its changed jar can not be read");
+                summary.addFailed(entry.getKey());
+                summary.addUnchanged(entry.getValue().getInfo());
+            }
+        }
+        changed.keySet().retainAll(replacements.keySet());
+
+        ArrayList<AddonInfo> unloading = new ArrayList<>();
+        HashSet<String> removed = new HashSet<>();
+        for (JavaAddon addon : loaded.values()) {
+            unloading.add(addon.getInfo());
+            removed.add(addon.getInfo().getSimpleName());
         }
+        for (JavaAddon addon : changed.values())
+            unloading.add(addon.getInfo());
+
+        // addons of removed jars do not satisfy the dependencies of new ones
+        File[] present = listAddonFiles();
+        if (present == null)
+            present = new File[0];
+        Scan scan = plan(pending.toArray(new File[0]), name -> !removed.contains(name) && isActive(name));
+        ArrayList<AddonInfo> loading = new ArrayList<>(scan.loading);
+        loading.addAll(replacements.values());
+
+        if (!fireBatch(unloading, loading)) {
+            // keep all loaded addons as they are
+            CerberusRegistry.getInstance().warning("Reloading " + unloading.size() + " loaded and "
+                    + loading.size() + " discovered addons has been vetoed");
+            for (AddonInfo info : unloading)
+                summary.addUnchanged(info);
+            for (File file : complete(scan, present, false).keySet())
+                summary.addFailed(file);
+            return summary;
+        }
+
+        // unload addons of removed jars first, so that replacements can
+        // take over their names
+        for (JavaAddon addon : loaded.values()) {
+            runOrdered(addon.getInfo(), () -> {
+                unloadLocked(addon.getInfo(), perAddonEvents);
+                return null;
+            });
+            if (addons.containsKey(addon.getInfo()))
+                summary.addUnchanged(addon.getInfo());
+            else
+                summary.addRemoved(addon.getInfo());
+        }
+
+        Map<File, AddonInfo> results = complete(scan, present, true);
+        for (Map.Entry<File, AddonInfo> entry : results.entrySet()) {
+            if (entry.getValue() == null)
+                summary.addFailed(entry.getKey());
+            else
+                summary.addAdded(entry.getValue());
+        }
+
+        // changed addons are swapped after the new ones have been started,
+        // since their new versions may depend on them
+        for (Map.Entry<File, JavaAddon> entry : changed.entrySet()) {
+            JavaAddonInfo replacement = replacements.get(entry.getKey());
+            switch (runOrdered(entry.getValue().getInfo(), () -> swap(entry.getValue(), replacement))) {
+                case REPLACED:
+                    summary.addReplaced(replacement);
+                    break;
+                case REMOVED:
+                    summary.addFailed(entry.getKey());
+                    summary.addRemoved(entry.getValue().getInfo());
+                    break;
+                default:
+                    summary.addFailed(entry.getKey());
+                    summary.addUnchanged(entry.getValue().getInfo());
+            }
+        }
+
+        if (!changed.isEmpty() && index != null)
+            index.save();
+        return summary;
     }
 
-    @Override
-    public void reload(@NotNull AddonInfo info) {
-        JavaAddon addon = addons.get(info);
-        if (addon == null) {
+    /**
+     * Will replace a loaded addon with the addon from its changed jar
+     * file.
+     *
+     * The new jar is validated and its main class is loaded first. The
+     * old addon is only unloaded once this has succeeded, so a broken
+     * replacement leaves the old addon running.
+     *
+     * @param old loaded addon
+     * @param info info read from the changed jar file of the addon
+     * @return outcome of the swap
+     */
+    private Swap swap(JavaAddon old, JavaAddonInfo info) {
+        if (!isResolved(info))
+            return Swap.KEPT;
+
+        AddonLifecycleLock lock = getLock(old.getInfo());
+        lock.lock();
+        try {
+            JavaAddon replacement;
             try {
-                addon = (JavaAddon) loadAddon(info);
-                addon.enable();
+                replacement = prepare(info, perAddonEvents);
             } catch (AddonLoadException e) {
-                CerberusRegistry.getInstance().warning("Unable to load addon " + TerminalUtil.ANSI_BLUE
-                        + info.getSimpleName() + TerminalUtil.ANSI_RESET);
+                CerberusRegistry.getInstance().warning("Keeping addon " + TerminalUtil.ANSI_BLUE
+                        + old.getInfo().getSimpleName() + TerminalUtil.ANSI_RESET
+                        + ", its changed jar can not be loaded");
+                return Swap.KEPT;
+            }
+
+            unloadLocked(old.getInfo(), perAddonEvents);
+            if (addons.containsKey(old.getInfo())) {
+                replacement.getHandle().close();
+                return Swap.KEPT;
+            }
+
+            // the old addon is gone from here on
+            try {
+                init(replacement);
+            } catch (AddonLoadException e) {
+                CerberusRegistry.getInstance().warning("Addon " + TerminalUtil.ANSI_BLUE
+                        + old.getInfo().getSimpleName() + TerminalUtil.ANSI_RESET
+                        + " has been unloaded, but its changed jar could not be initialized");
+                return Swap.REMOVED;
+            }
+            register(replacement);
+            replacement.enable(perAddonEvents);
+            if (!replacement.isActive()) {
+                CerberusRegistry.getInstance().warning("Addon " + TerminalUtil.ANSI_BLUE
+                        + old.getInfo().getSimpleName() + TerminalUtil.ANSI_RESET
+                        + " has been replaced, but its new version could not be enabled");
+                return Swap.REMOVED;
+            }
+            return Swap.REPLACED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private @Nullable File[] listAddonFiles() {
+        File[] files = dir.listFiles();
+        // register addons in a stable order, regardless of the file system
+        if (files != null)
+            Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * Will discover the addons in the specified files and order them by
+     * their dependencies, without loading them yet.
+     * @param files files to scan
+     * @param active returns true for the names of addons outside of the
+     *               scan, that will be active when the scan is started
+     * @return planned scan
+     */
+    private Scan plan(File[] files, Predicate<String> active) {
+        Scan scan = new Scan(new JavaAddonScanReport(Math.max(1, Math.min(discoveryThreads, files.length))));
+        ArrayList<AddonInfo> infos = new ArrayList<>();
+        for (Discovery discovery : discover(files)) {
+            scan.report.addFile(discovery.file, discovery.time, discovery.info != null);
+            scan.results.put(discovery.file, null);
+            if (discovery.info != null)
+                infos.add(discovery.info);
+        }
+
+        AddonDependencyGraph<AddonInfo> graph = new AddonDependencyGraph<>(infos, AddonInfo::getSimpleName,
+                AddonInfo::getDependencies, active);
+        reportDependencies(graph);
+
+        scan.waves = graph.getWaves();
+        scan.waves.forEach(scan.loading::addAll);
+        return scan;
+    }
+
+    /**
+     * Will load and enable the addons of a planned scan and report the
+     * scan.
+     * @param scan planned scan
+     * @param present all files currently present in the addon directory
+     * @param start false, if the scan has been vetoed and its addons must
+     *              not be loaded
+     * @return the loaded addon info for each scanned file, or null if
+     *          the file could not be loaded
+     */
+    private Map<File, AddonInfo> complete(Scan scan, File[] present, boolean start) {
+        JavaAddonScanReport report = scan.report;
+        if (start)
+            startWaves(scan.waves, scan.results);
+
+        if (index != null) {
+            index.retain(Arrays.asList(present));
+            index.save();
+        }
+
+        report.setTotalTime(System.nanoTime() - scan.start);
+        lastScan = report;
+
+        CerberusRegistry.getInstance().info(report.toString());
+        if (libraries != null) {
+            JavaAddonLibraries.Usage usage = getSharedLibraryUsage();
+            CerberusRegistry.getInstance().info("Shared libraries provide " + libraries.getClassCount()
+                    + " classes from " + libraries.getJarCount() + " jars; loaded addons share " + usage.getClasses()
+                    + " bundled classes (~" + (usage.getBytes() / 1024) + " KiB of metaspace) with them");
+        }
+        for (Map.Entry<File, Long> entry : report.getFileTimes().entrySet())
+            CerberusRegistry.getInstance().debug("Discovered addon file \"" + entry.getKey().getName() + "\" in "
+                    + (entry.getValue() / 1_000_000) + "ms");
+        return scan.results;
+    }
+
+    private void reportDependencies(AddonDependencyGraph<AddonInfo> graph) {
+        for (Map.Entry<AddonInfo, List<String>> entry : graph.getMissing().entrySet())
+            CerberusRegistry.getInstance().warning("Addon " + TerminalUtil.ANSI_BLUE
+                    + entry.getKey().getSimpleName() + TerminalUtil.ANSI_RESET
+                    + " is missing the dependencies " + entry.getValue());
+
+        for (List<AddonInfo> cycle : graph.getCycles()) {
+            StringBuilder builder = new StringBuilder();
+            for (AddonInfo info : cycle)
+                builder.append(info.getSimpleName()).append(" -> ");
+            builder.append(cycle.get(0).getSimpleName());
+            CerberusRegistry.getInstance().warning("Addons form a dependency cycle: " + builder);
+        }
+
+        for (AddonInfo info : graph.getBlocked())
+            CerberusRegistry.getInstance().warning("Addon " + TerminalUtil.ANSI_BLUE + info.getSimpleName()
+                    + TerminalUtil.ANSI_RESET + " depends on addons that can not be loaded");
+    }
+
+    /**
+     * Will load and enable the addons wave by wave. The addons of a wave
+     * are started concurrently, once all addons of the previous waves
+     * have been started.
+     * @param waves addons in dependency order
+     * @param results results to store the loaded addons in
+     */
+    private void startWaves(List<List<AddonInfo>> waves, Map<File, AddonInfo> results) {
+        int maxWave = 0;
+        for (List<AddonInfo> wave : waves)
+            maxWave = Math.max(maxWave, wave.size());
+
+        int threads = Math.max(1, Math.min(enableThreads, maxWave));
+        ExecutorService executor = null;
+        if (threads > 1) {
+            AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "addon-enable-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        // each addon is started as a child operation of its own, so that
+        // the addons of a wave do not share their locks with each other
+        AddonLifecycleExecutor.handOff();
+        try {
+            for (List<AddonInfo> wave : waves) {
+                ArrayList<AddonInfo> ready = new ArrayList<>(wave.size());
+                for (AddonInfo info : wave) {
+                    if (isResolved(info))
+                        ready.add(info);
+                }
+
+                // started through the lifecycle executor, so that operations
+                // already requested for an addon complete first
+                Executor target = executor != null && ready.size() > 1 ? executor : Runnable::run;
+                List<CompletableFuture<Boolean>> futures = new ArrayList<>(ready.size());
+                for (AddonInfo info : ready)
+                    futures.add(lifecycleExecutor().submit(getKey(info), () -> start(info), target));
+
+                for (int i = 0; i < ready.size(); i++) {
+                    try {
+                        if (futures.get(i).get())
+                            results.put(ready.get(i).jarFile(), ready.get(i));
+                    } catch (ExecutionException e) {
+                        getEventService().executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CerberusRegistry.getInstance().warning("Enabling addons has been interrupted");
+        } finally {
+            if (executor != null)
+                executor.shutdownNow();
+            AddonLifecycleExecutor.reclaim();
+        }
+    }
+
+    private boolean start(AddonInfo info) {
+        AddonLifecycleLock lock = getLock(info);
+        lock.lock();
+        try {
+            loadLocked(info, perAddonEvents).enable(perAddonEvents);
+            return true;
+        } catch (AddonLoadException e) {
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true, if all dependencies of the addon are active.
+     * @param info addon info
+     * @return dependencies are resolved
+     */
+    private boolean isResolved(AddonInfo info) {
+        for (String dependency : info.getDependencies()) {
+            if (!isActive(dependency)) {
+                CerberusRegistry.getInstance().warning("Addon " + TerminalUtil.ANSI_BLUE + info.getSimpleName()
+                        + TerminalUtil.ANSI_RESET + " is not loaded, because its dependency " + dependency
+                        + " is not active");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isActive(String name) {
+        for (JavaAddon addon : addons.values()) {
+            if (addon.getInfo().getSimpleName().equals(name) && addon.isActive())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Will read the addon info files of all specified files concurrently.
+     *
+     * The returned list has the same order as the specified file array.
+     *
+     * @param files addon files
+     * @return discovery results
+     */
+    private List<Discovery> discover(File[] files) {
+        List<File> scanned = new ArrayList<>(files.length);
+        List<Callable<Discovery>> tasks = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (file != null) {
+                scanned.add(file);
+                tasks.add(() -> discover(file));
             }
+        }
+
+        int threads = Math.max(1, Math.min(discoveryThreads, tasks.size()));
+        if (threads == 1) {
+            List<Discovery> results = new ArrayList<>(tasks.size());
+            for (File file : scanned) {
+                try {
+                    results.add(discover(file));
+                } catch (RuntimeException e) {
+                    // only skip the jar that failed, as the parallel path does
+                    getEventService().executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+                    results.add(new Discovery(file, null, 0));
+                }
+            }
+            return results;
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "addon-discovery-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Discovery> results = new ArrayList<>(tasks.size());
+        try {
+            List<Future<Discovery>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    // only skip the jar that failed, the others are still loaded
+                    getEventService().executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+                    results.add(new Discovery(scanned.get(i), null, 0));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CerberusRegistry.getInstance().warning("Addon discovery has been interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private Discovery discover(File file) {
+        long start = System.nanoTime();
+        AddonInfo info;
+        try {
+            info = loadInfo(file);
+        } catch (AddonInfoLoadException e) {
+            info = null;
+        }
+        return new Discovery(file, info, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the report of the last directory scan.
+     *
+     * If the addon directory has not been scanned yet, this method
+     * will return null.
+     *
+     * @return last scan report
+     */
+    public @Nullable JavaAddonScanReport getLastScanReport() {
+        return lastScan;
+    }
+
+    @Override
+    public void reload(@NotNull AddonInfo info) {
+        lifecycleExecutor().call(getKey(info), () -> {
+            reloadLocked(info);
+            return null;
+        });
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> reloadAsync(@NotNull AddonInfo info) {
+        return lifecycleExecutor().submit(getKey(info), () -> reloadLocked(info));
+    }
+
+    private void reloadLocked(AddonInfo info) {
+        if (!(info instanceof JavaAddonInfo))
             return;
+
+        AddonLifecycleLock lock = getLock(info);
+        lock.lock();
+        try {
+            JavaAddon addon = find(info);
+            if (addon == null) {
+                try {
+                    addon = load((JavaAddonInfo) info, true);
+                    addon.enable();
+                } catch (AddonLoadException e) {
+                    CerberusRegistry.getInstance().warning("Unable to load addon " + TerminalUtil.ANSI_BLUE
+                            + info.getSimpleName() + TerminalUtil.ANSI_RESET);
+                }
+                return;
+            }
+
+            addon.destroy();
+            addon.init();
+            addon.enable();
+        } finally {
+            lock.unlock();
         }
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Boolean> enableAsync(@NotNull AddonInfo info) {
+        return lifecycleExecutor().submit(getKey(info), () -> {
+            Addon addon = getAddon(info);
+            return addon != null && addon.enable();
+        });
+    }
 
-        addon.destroy();
-        addon.init();
-        addon.enable();
+    @Override
+    public @NotNull CompletableFuture<Boolean> disableAsync(@NotNull AddonInfo info) {
+        return lifecycleExecutor().submit(getKey(info), () -> {
+            Addon addon = getAddon(info);
+            return addon != null && addon.disable();
+        });
     }
 
     @Override
     public Collection<AddonInfo> getAddonInfo() {
-        return addons.keySet();
+        return Collections.unmodifiableSet(addons.keySet());
     }
 
     @Override
     public void destroy() {
-        unloadAll();
+        long timeout = AddonSettings.getLong(getAddonService().getSettings(), "shutdown_timeout", 25000);
+        shutdown(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+    }
+
+    @Override
+    public @NotNull Collection<AddonInfo> shutdown(long deadline) {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+
+        List<AddonInfo> missed = unloadAll(deadline);
+
+        if (leakDetector != null) {
+            leakDetector.stop();
+            leakDetector = null;
+        }
+
+        if (libraries != null) {
+            libraries.close();
+            libraries = null;
+        }
+
+        if (index != null)
+            index.save();
+        return missed;
     }
 
     @Override
@@ -235,8 +1236,48 @@ public class JavaAddonManager implements AddonManager {
             }
         }
 
+        File libDir = new File(settings.getString("manager_java_libs", "addons/lib/"));
+        libraries = JavaAddonLibraries.load(libDir);
+        if (libraries != null)
+            CerberusRegistry.getInstance().debug("Loaded " + libraries.getJarCount()
+                    + " shared addon libraries from \"" + libDir.getAbsolutePath() + "\"");
+
         infoFileName = settings.getString("info_file", "addon.info");
+        discoveryThreads = AddonSettings.getInt(settings, "manager_java_discovery_threads",
+                Runtime.getRuntime().availableProcessors());
+        enableThreads = AddonSettings.getInt(settings, "manager_java_enable_threads",
+                Runtime.getRuntime().availableProcessors());
+
+        long leakTimeout = AddonSettings.getLong(settings, "manager_java_leak_timeout", 60000);
+        if (leakTimeout > 0) {
+            leakDetector = new JavaAddonLeakDetector(leakTimeout);
+            leakDetector.start();
+        } else
+            leakDetector = null;
+
+        hashJars = AddonSettings.getBoolean(settings, "manager_java_index_hash", false);
+        incrementalReload = AddonSettings.getBoolean(settings, "manager_java_incremental_reload", false);
+        perAddonEvents = AddonSettings.getBoolean(settings, "per_addon_events", true);
+
+        if (AddonSettings.getBoolean(settings, "manager_java_index", true)) {
+            index = new JavaAddonIndex(runDir.toPath().resolve("addon.index").toFile(), infoFileName, hashJars);
+            index.load();
+        } else
+            index = null;
+
         reload();
+
+        if (AddonSettings.getBoolean(settings, "manager_java_watch", false)) {
+            watcher = new JavaAddonWatcher(this, dir,
+                    AddonSettings.getLong(settings, "manager_java_watch_debounce", 1000));
+            try {
+                watcher.start();
+            } catch (IOException e) {
+                CerberusRegistry.getInstance().warning("Unable to watch addon directory \""
+                        + dir.getAbsolutePath() + "\" for hot deployment");
+                watcher = null;
+            }
+        }
     }
     
     private CerberusAddon getAddonService() {
@@ -246,8 +1287,53 @@ public class JavaAddonManager implements AddonManager {
     }
 
     private CerberusEvent getEventService() {
-        if (event == null)
-            event = CerberusRegistry.getInstance().getService(CerberusEvent.class);
-        return event;
+        return getEvents().getService();
+    }
+
+    private AddonEvents getEvents() {
+        if (events == null)
+            events = getAddonService().getEvents();
+        return events;
+    }
+
+    /**
+     * Outcome of swapping a changed addon.
+     */
+    private enum Swap {
+        /** The new version is active */
+        REPLACED,
+        /** The old version has been kept running */
+        KEPT,
+        /** The old version has been unloaded, but the new one is not active */
+        REMOVED
+    }
+
+    /**
+     * Addons discovered by a scan, that have not been started yet.
+     */
+    private static class Scan {
+
+        private final long start = System.nanoTime();
+        private final JavaAddonScanReport report;
+        private final LinkedHashMap<File, AddonInfo> results = new LinkedHashMap<>();
+        private final ArrayList<AddonInfo> loading = new ArrayList<>();
+        private List<List<AddonInfo>> waves;
+
+        private Scan(JavaAddonScanReport report) {
+            this.report = report;
+        }
+    }
+
+    private static class Discovery {
+
+        private final File file;
+        private final AddonInfo info;
+        private final long time;
+
+        private Discovery(File file, AddonInfo info, long time) {
+            this.file = file;
+            this.info = info;
+            this.time = time;
+        }
     }
 }
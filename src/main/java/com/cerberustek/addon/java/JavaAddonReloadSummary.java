@@ -0,0 +1,114 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon.java;
+
+import com.cerberustek.addon.AddonInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of the changes applied by an incremental reload of the java
+ * addon directory.
+ */
+public class JavaAddonReloadSummary {
+
+    private final ArrayList<AddonInfo> added = new ArrayList<>();
+    private final ArrayList<AddonInfo> replaced = new ArrayList<>();
+    private final ArrayList<AddonInfo> removed = new ArrayList<>();
+    private final ArrayList<AddonInfo> unchanged = new ArrayList<>();
+    private final ArrayList<File> failed = new ArrayList<>();
+
+    void addAdded(@NotNull AddonInfo info) {
+        added.add(info);
+    }
+
+    void addReplaced(@NotNull AddonInfo info) {
+        replaced.add(info);
+    }
+
+    void addRemoved(@NotNull AddonInfo info) {
+        removed.add(info);
+    }
+
+    void addUnchanged(@NotNull AddonInfo info) {
+        unchanged.add(info);
+    }
+
+    void addFailed(@NotNull File file) {
+        failed.add(file);
+    }
+
+    /**
+     * Returns the addons that have been loaded from new jar files.
+     * @return added addons
+     */
+    public @NotNull List<AddonInfo> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    /**
+     * Returns the addons that have been replaced, because their jar
+     * file has changed.
+     * @return replaced addons
+     */
+    public @NotNull List<AddonInfo> getReplaced() {
+        return Collections.unmodifiableList(replaced);
+    }
+
+    /**
+     * Returns the addons that have been unloaded, because their jar
+     * file has been removed, or because the new version of their changed
+     * jar file could not be started in their place.
+     * @return removed addons
+     */
+    public @NotNull List<AddonInfo> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * Returns the addons that have been left running.
+     * @return unchanged addons
+     */
+    public @NotNull List<AddonInfo> getUnchanged() {
+        return Collections.unmodifiableList(unchanged);
+    }
+
+    /**
+     * Returns the jar files that could not be loaded or swapped.
+     * @return failed jar files
+     */
+    public @NotNull List<File> getFailed() {
+        return Collections.unmodifiableList(failed);
+    }
+
+    @Override
+    public String toString() {
+        return "Reloaded addons: " + added.size() + " added, " + replaced.size() + " replaced, "
+                + removed.size() + " removed, " + unchanged.size() + " unchanged, " + failed.size() + " failed";
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon.java;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Timings collected while scanning the java addon directory.
+ */
+public class JavaAddonScanReport {
+
+    private final LinkedHashMap<File, Long> fileTimes = new LinkedHashMap<>();
+    private final int threads;
+    private long totalTime;
+    private int failed;
+
+    public JavaAddonScanReport(int threads) {
+        this.threads = threads;
+    }
+
+    void addFile(@NotNull File file, long nanos, boolean success) {
+        fileTimes.put(file, nanos);
+        if (!success)
+            failed++;
+    }
+
+    void setTotalTime(long nanos) {
+        totalTime = nanos;
+    }
+
+    /**
+     * Returns the time in nanoseconds it took to scan the whole
+     * addon directory.
+     * @return total scan time
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Returns the time in nanoseconds it took to discover each
+     * individual addon file, in the order in which the addons have
+     * been registered.
+     * @return scan time per file
+     */
+    public @NotNull Map<File, Long> getFileTimes() {
+        return Collections.unmodifiableMap(fileTimes);
+    }
+
+    /**
+     * Returns the amount of threads used for the scan.
+     * @return discovery threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns the amount of files that did not contain a loadable
+     * addon.
+     * @return failed files
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return "Scanned " + fileTimes.size() + " addon files (" + failed + " failed) in "
+                + (totalTime / 1_000_000) + "ms using " + threads + " threads";
+    }
+}
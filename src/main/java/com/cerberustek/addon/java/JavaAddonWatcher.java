@@ -0,0 +1,243 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon.java;
+
+import com.cerberustek.CerberusEvent;
+import com.cerberustek.CerberusRegistry;
+import com.cerberustek.CerberusAddon;
+import com.cerberustek.events.ExceptionEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the java addon directory and hot deploys jar files as they
+ * are created, modified or deleted.
+ *
+ * All events are handled on a single watcher thread. Bursts of events
+ * for the same jar are collected until the jar has not changed for the
+ * debounce interval and can be opened as a complete zip file. Only then
+ * the jar is loaded, replaced or unloaded by the addon manager. A jar
+ * that still can not be opened after ten debounce intervals is reported
+ * and skipped, until it changes again.
+ */
+public class JavaAddonWatcher implements Runnable {
+
+    /** Debounce intervals after which an unreadable jar is given up on. */
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final HashMap<Path, Pending> pending = new HashMap<>();
+    private final JavaAddonManager manager;
+    private final Path dir;
+    private final long debounce;
+
+    private WatchService watchService;
+    private Thread thread;
+    private boolean overflow;
+    private long overflowTime;
+
+    public JavaAddonWatcher(@NotNull JavaAddonManager manager, @NotNull File dir, long debounce) {
+        this.manager = manager;
+        this.dir = dir.toPath().toAbsolutePath();
+        this.debounce = Math.max(1, debounce);
+    }
+
+    /**
+     * Will start watching the addon directory.
+     * @throws IOException thrown, if the directory could not be watched
+     */
+    public void start() throws IOException {
+        if (thread != null)
+            return;
+
+        watchService = dir.getFileSystem().newWatchService();
+        dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+        thread = new Thread(this, "addon-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Will stop watching the addon directory and wait for the watcher
+     * thread to terminate.
+     */
+    public void stop() {
+        if (thread == null)
+            return;
+
+        try {
+            watchService.close();
+        } catch (IOException ignore) {}
+        thread.interrupt();
+
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * Returns the watcher thread, or null if the watcher is not running.
+     * @return watcher thread
+     */
+    public Thread getThread() {
+        return thread;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = pending.isEmpty() && !overflow ? watchService.take()
+                        : watchService.poll(debounce, TimeUnit.MILLISECONDS);
+
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            overflow = true;
+                            overflowTime = System.nanoTime();
+                            continue;
+                        }
+
+                        Path path = dir.resolve((Path) event.context());
+                        if (path.getFileName().toString().endsWith(".jar"))
+                            pending.computeIfAbsent(path, Pending::new).touch();
+                    }
+
+                    if (!key.reset()) {
+                        CerberusRegistry.getInstance().warning("Addon directory \"" + dir
+                                + "\" is no longer accessible; hot deployment has been stopped");
+                        return;
+                    }
+                }
+
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    CerberusRegistry.getInstance().getService(CerberusEvent.class)
+                            .executeFullEIF(new ExceptionEvent(CerberusAddon.class, e));
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignore) {}
+    }
+
+    private void flush() {
+        long now = System.nanoTime();
+        ArrayList<File> ready = new ArrayList<>();
+        boolean settled = true;
+
+        Iterator<Pending> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            Pending p = iterator.next();
+            if (p.isReady(now)) {
+                ready.add(p.path.toFile());
+            } else if (p.attempts >= MAX_ATTEMPTS) {
+                // the jar is stable, but still can not be opened, so it is
+                // most likely corrupt; it is tried again once it changes
+                iterator.remove();
+                CerberusRegistry.getInstance().warning("Addon jar \"" + p.path.getFileName()
+                        + "\" can not be opened and has not been deployed");
+            } else
+                settled = false;
+        }
+
+        if (overflow) {
+            // events have been lost, so the whole directory has to be compared
+            // once it has settled, or once it has been busy for too long
+            long elapsed = now - overflowTime;
+            if (elapsed < TimeUnit.MILLISECONDS.toNanos(debounce) || !settled
+                    && elapsed < TimeUnit.MILLISECONDS.toNanos(debounce * MAX_ATTEMPTS))
+                return;
+
+            pending.clear();
+            overflow = false;
+            CerberusRegistry.getInstance().info(manager.reloadChanged().toString());
+        } else if (!ready.isEmpty()) {
+            for (File file : ready)
+                pending.remove(file.toPath());
+            CerberusRegistry.getInstance().info(manager.reloadChanged(ready).toString());
+        }
+    }
+
+    private class Pending {
+
+        private final Path path;
+        private long time;
+        private long size;
+        private long modified;
+        private int attempts;
+
+        private Pending(Path path) {
+            this.path = path;
+        }
+
+        private void touch() {
+            File file = path.toFile();
+            time = System.nanoTime();
+            size = file.length();
+            modified = file.lastModified();
+        }
+
+        /**
+         * Returns true, if the jar has not changed for the debounce
+         * interval and is either deleted or completely written.
+         */
+        private boolean isReady(long now) {
+            if (now - time < TimeUnit.MILLISECONDS.toNanos(debounce))
+                return false;
+
+            File file = path.toFile();
+            if (!file.exists())
+                return true;
+
+            if (file.length() != size || file.lastModified() != modified) {
+                attempts = 0;
+                touch();
+                return false;
+            }
+
+            try {
+                new ZipFile(file).close();
+                return true;
+            } catch (IOException e) {
+                // the jar is most likely still being copied
+                attempts++;
+                touch();
+                return false;
+            }
+        }
+    }
+}
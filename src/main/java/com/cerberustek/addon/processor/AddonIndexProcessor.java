@@ -0,0 +1,113 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.addon.processor;
+
+import com.cerberustek.addon.AddonHandler;
+import com.cerberustek.addon.AddonIndex;
+import com.cerberustek.addon.FieldHandler;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Annotation processor generating the handler index of every class
+ * declaring addon handlers or injectable fields.
+ *
+ * The index is written as a resource next to the compiled classes, so
+ * that the addon managers can resolve the handlers of an addon main
+ * class without scanning it reflectively.
+ */
+@SupportedAnnotationTypes({"com.cerberustek.addon.AddonHandler", "com.cerberustek.addon.FieldHandler"})
+public class AddonIndexProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        LinkedHashSet<TypeElement> types = new LinkedHashSet<>();
+        collect(roundEnv.getElementsAnnotatedWith(AddonHandler.class), types);
+        collect(roundEnv.getElementsAnnotatedWith(FieldHandler.class), types);
+
+        for (TypeElement type : types)
+            write(type);
+        return false;
+    }
+
+    private void collect(Set<? extends Element> elements, Set<TypeElement> types) {
+        for (Element element : elements) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC))
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "Addon handlers have to be public to be found", element);
+
+            if (element.getEnclosingElement() instanceof TypeElement)
+                types.add((TypeElement) element.getEnclosingElement());
+        }
+    }
+
+    private void write(TypeElement type) {
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        List<? extends Element> members = processingEnv.getElementUtils().getAllMembers(type);
+
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    AddonIndex.path(binaryName), type);
+
+            try (Writer writer = file.openWriter()) {
+                writer.write("# generated by " + getClass().getName() + "\n");
+                writer.write("version " + AddonIndex.VERSION + "\n");
+
+                for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+                    AddonHandler handler = method.getAnnotation(AddonHandler.class);
+                    if (handler != null && method.getModifiers().contains(Modifier.PUBLIC)
+                            && method.getParameters().isEmpty())
+                        writer.write("method " + handler.value().name() + " " + method.getSimpleName() + "\n");
+                }
+
+                for (VariableElement field : ElementFilter.fieldsIn(members)) {
+                    FieldHandler handler = field.getAnnotation(FieldHandler.class);
+                    if (handler != null && field.getModifiers().contains(Modifier.PUBLIC))
+                        writer.write("field " + handler.value().name() + " " + field.getSimpleName() + "\n");
+                }
+            }
+        } catch (FilerException ignore) {
+            // the index of this type has already been written
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write addon index for " + binaryName + ": " + e.getMessage(), type);
+        }
+    }
+}
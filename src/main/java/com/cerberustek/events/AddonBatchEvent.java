@@ -0,0 +1,95 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.events;
+
+import com.cerberustek.addon.AddonInfo;
+import com.cerberustek.event.Event;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Event fired once for a whole batch of addons, before a reload unloads
+ * or loads any of them. The event carries both the addons that are going
+ * to be unloaded and the addons that are going to be loaded. Vetoing the
+ * event cancels the whole reload, leaving all loaded addons as they are.
+ */
+public class AddonBatchEvent implements Event {
+
+    public enum Action {
+        LOAD,
+        UNLOAD,
+        RELOAD
+    }
+
+    private final Collection<AddonInfo> unloading;
+    private final Collection<AddonInfo> loading;
+
+    public AddonBatchEvent(@NotNull Collection<? extends AddonInfo> unloading,
+                           @NotNull Collection<? extends AddonInfo> loading) {
+        this.unloading = Collections.unmodifiableList(new ArrayList<>(unloading));
+        this.loading = Collections.unmodifiableList(new ArrayList<>(loading));
+    }
+
+    /**
+     * Returns whether the batch only loads addons, only unloads addons, or
+     * does both.
+     * @return batch action
+     */
+    public @NotNull Action getAction() {
+        if (unloading.isEmpty())
+            return Action.LOAD;
+        return loading.isEmpty() ? Action.UNLOAD : Action.RELOAD;
+    }
+
+    /**
+     * Returns the loaded addons, that are going to be unloaded.
+     * @return addons to unload
+     */
+    public @NotNull Collection<AddonInfo> getUnloading() {
+        return unloading;
+    }
+
+    /**
+     * Returns the addons, that are going to be loaded. For changed addons,
+     * this contains their new version, while their loaded version is
+     * going to be unloaded.
+     * @return addons to load
+     */
+    public @NotNull Collection<AddonInfo> getLoading() {
+        return loading;
+    }
+
+    /**
+     * Returns all addons of the batch.
+     * @return addons to unload, followed by the addons to load
+     */
+    public @NotNull Collection<AddonInfo> getInfos() {
+        ArrayList<AddonInfo> infos = new ArrayList<>(unloading);
+        infos.addAll(loading);
+        return Collections.unmodifiableList(infos);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Cerberus-Addon is a simple addon management library
+ * Visit https://cerberustek.com for more details
+ * Copyright (c)  2020  Adrian Paskert
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. See the file LICENSE included with this
+ * distribution for more information.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.cerberustek.events;
+
+import com.cerberustek.CerberusEvent;
+import com.cerberustek.CerberusRegistry;
+import com.cerberustek.addon.AddonInfo;
+import com.cerberustek.event.Event;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Dispatches the lifecycle events of the addon subsystem.
+ *
+ * Event types can be muted, if nobody listens for them. Muted events are
+ * neither constructed nor dispatched, and are treated as approved. The
+ * event service is looked up once and cached afterwards.
+ */
+public class AddonEvents {
+
+    private final Set<Class<? extends Event>> muted = ConcurrentHashMap.newKeySet();
+    private volatile CerberusEvent service;
+
+    /**
+     * Returns true, if events of the specified type are dispatched.
+     * @param type event type
+     * @return is dispatched
+     */
+    public boolean isDispatched(@NotNull Class<? extends Event> type) {
+        return muted.isEmpty() || !muted.contains(type);
+    }
+
+    /**
+     * Will mute or unmute the events of the specified type.
+     * @param type event type
+     * @param dispatched true, if the events should be dispatched
+     */
+    public void setDispatched(@NotNull Class<? extends Event> type, boolean dispatched) {
+        if (dispatched)
+            muted.remove(type);
+        else
+            muted.add(type);
+    }
+
+    /**
+     * Will mute the events with the specified simple class names.
+     *
+     * Only the addon lifecycle events of this package can be muted this
+     * way. Unknown names are ignored. Every muted type is logged, since
+     * its events count as approved even if a listener that would have
+     * vetoed them registers later on.
+     *
+     * @param names simple class names, separated by commas
+     */
+    public void mute(@NotNull String names) {
+        for (String name : names.split(",")) {
+            Class<? extends Event> type = lifecycleEvent(name.trim());
+            if (type != null) {
+                if (muted.add(type))
+                    CerberusRegistry.getInstance().warning("Addon event type " + type.getSimpleName()
+                            + " is muted, its events will not be dispatched and can not be vetoed");
+            } else if (!name.trim().isEmpty())
+                CerberusRegistry.getInstance().warning("Unknown addon event type " + name.trim());
+        }
+    }
+
+    private static Class<? extends Event> lifecycleEvent(String name) {
+        switch (name) {
+            case "AddonLoadEvent":
+                return AddonLoadEvent.class;
+            case "AddonEnableEvent":
+                return AddonEnableEvent.class;
+            case "AddonDisableEvent":
+                return AddonDisableEvent.class;
+            case "AddonUnloadEvent":
+                return AddonUnloadEvent.class;
+            case "AddonBatchEvent":
+                return AddonBatchEvent.class;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Will fire a per-addon event, unless its type is muted.
+     *
+     * The event is only constructed, if it is dispatched. Pass a
+     * constructor reference as factory, to keep the muted path free of
+     * allocations.
+     *
+     * @param type event type
+     * @param factory creates the event for the addon
+     * @param info addon info
+     * @param <T> event type
+     * @return false, if the event has been vetoed
+     */
+    public <T extends Event> boolean fire(@NotNull Class<T> type, @NotNull Function<AddonInfo, T> factory,
+                                          @NotNull AddonInfo info) {
+        if (!isDispatched(type))
+            return true;
+        return getService().executeShortEIF(factory.apply(info));
+    }
+
+    /**
+     * Returns the cached event service.
+     * @return event service
+     */
+    public @NotNull CerberusEvent getService() {
+        CerberusEvent service = this.service;
+        if (service == null)
+            this.service = service = CerberusRegistry.getInstance().getService(CerberusEvent.class);
+        return service;
+    }
+}